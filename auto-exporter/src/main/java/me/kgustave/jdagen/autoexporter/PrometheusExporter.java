@@ -0,0 +1,279 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autoexporter;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import me.kgustave.jdagen.autolistener.runtime.HandlerStats;
+import me.kgustave.jdagen.autolistener.runtime.Instrumented;
+import me.kgustave.jdagen.autolistener.runtime.LatencyHistogram;
+import me.kgustave.jdagen.autolistener.runtime.ListenerStats;
+import net.dv8tion.jda.core.JDA;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Serves the runtime statistics of generated listeners and the ping of
+ * {@link net.dv8tion.jda.core.JDA JDA} instances in the Prometheus text format.
+ *
+ * <p>Listeners are only exported if they were generated with
+ * {@link me.kgustave.jdagen.autolistener.AutoListener#metrics() metrics} enabled.
+ * <br>Login classes generated with a {@code metricsPort} set will create and start
+ * one of these automatically.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class PrometheusExporter
+{
+    public static final String PATH = "/metrics";
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final int port;
+    private final List<ListenerStats> listeners = new CopyOnWriteArrayList<>();
+    private final List<JDA> shards = new CopyOnWriteArrayList<>();
+
+    private HttpServer server;
+
+    /**
+     * Creates a new PrometheusExporter.
+     *
+     * @param  port
+     *         The port to serve metrics on.
+     */
+    public PrometheusExporter(int port)
+    {
+        this.port = port;
+    }
+
+    /**
+     * Adds a listener to export.
+     * <br>Listeners that do not record metrics are ignored.
+     *
+     * @param  listener
+     *         The listener to export.
+     */
+    public void addListener(Object listener)
+    {
+        if(listener instanceof Instrumented)
+            listeners.add(((Instrumented) listener).getStats());
+    }
+
+    /**
+     * Adds several listeners to export.
+     * <br>Listeners that do not record metrics are ignored.
+     *
+     * @param  listeners
+     *         The listeners to export.
+     */
+    public void addListeners(Iterable<?> listeners)
+    {
+        for(Object listener : listeners)
+            addListener(listener);
+    }
+
+    /**
+     * Adds a {@link net.dv8tion.jda.core.JDA JDA} instance to export the ping of.
+     *
+     * @param  jda
+     *         The JDA instance.
+     */
+    public void addJDA(JDA jda)
+    {
+        shards.add(jda);
+    }
+
+    /**
+     * Starts serving metrics on {@value #PATH}.
+     *
+     * @throws IOException
+     *         If the server could not be bound to the port.
+     */
+    public synchronized void start() throws IOException
+    {
+        if(server != null)
+            return;
+
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext(PATH, this::handle);
+        server.start();
+    }
+
+    /**
+     * Stops serving metrics.
+     */
+    public synchronized void stop()
+    {
+        if(server == null)
+            return;
+
+        server.stop(0);
+        server = null;
+    }
+
+    /**
+     * Writes the current metrics in the Prometheus text format.
+     *
+     * @param  writer
+     *         The Writer to write to.
+     *
+     * @throws IOException
+     *         If an I/O error occurs.
+     */
+    public void write(Writer writer) throws IOException
+    {
+        header(writer, "jda_listener_events_total", "counter", "Events received by a listener.");
+        for(ListenerStats listener : listeners)
+            sample(writer, "jda_listener_events_total", listener.getEventsSeen(), "listener", listener.getName());
+
+        header(writer, "jda_listener_handler_invocations_total", "counter", "Invocations of a listener method.");
+        for(ListenerStats listener : listeners)
+        {
+            for(HandlerStats handler : listener.getHandlers())
+            {
+                sample(writer, "jda_listener_handler_invocations_total", handler.getInvocations(),
+                    "listener", listener.getName(), "handler", handler.getName());
+            }
+        }
+
+        header(writer, "jda_listener_handler_latency_seconds", "summary", "Latency of a listener method.");
+        for(ListenerStats listener : listeners)
+        {
+            for(HandlerStats handler : listener.getHandlers())
+            {
+                LatencyHistogram latency = handler.getLatency();
+                for(double quantile : QUANTILES)
+                {
+                    sample(writer, "jda_listener_handler_latency_seconds",
+                        latency.getPercentile(quantile * 100) / NANOS_PER_SECOND,
+                        "listener", listener.getName(), "handler", handler.getName(), "quantile", String.valueOf(quantile));
+                }
+                sample(writer, "jda_listener_handler_latency_seconds_sum", handler.getTotalNanos() / NANOS_PER_SECOND,
+                    "listener", listener.getName(), "handler", handler.getName());
+                sample(writer, "jda_listener_handler_latency_seconds_count", handler.getInvocations(),
+                    "listener", listener.getName(), "handler", handler.getName());
+            }
+        }
+
+        header(writer, "jda_listener_reply_latency_seconds", "summary", "Latency from receiving an event to a reply.");
+        for(ListenerStats listener : listeners)
+        {
+            for(HandlerStats handler : listener.getHandlers())
+            {
+                LatencyHistogram latency = handler.getReplyLatency();
+                if(latency.getCount() == 0)
+                    continue;
+
+                for(double quantile : QUANTILES)
+                {
+                    sample(writer, "jda_listener_reply_latency_seconds",
+                        latency.getPercentile(quantile * 100) / NANOS_PER_SECOND,
+                        "listener", listener.getName(), "handler", handler.getName(), "quantile", String.valueOf(quantile));
+                }
+                sample(writer, "jda_listener_reply_latency_seconds_sum", latency.getSum() / NANOS_PER_SECOND,
+                    "listener", listener.getName(), "handler", handler.getName());
+                sample(writer, "jda_listener_reply_latency_seconds_count", latency.getCount(),
+                    "listener", listener.getName(), "handler", handler.getName());
+            }
+        }
+
+        header(writer, "jda_listener_queue_depth", "gauge", "Tasks waiting in a listener queue.");
+        for(ListenerStats listener : listeners)
+        {
+            for(Map.Entry<String, Integer> queue : listener.getQueueDepths().entrySet())
+            {
+                sample(writer, "jda_listener_queue_depth", queue.getValue(),
+                    "listener", listener.getName(), "queue", queue.getKey());
+            }
+        }
+
+        header(writer, "jda_listener_rejected_total", "counter", "Tasks dropped by a full or shut down listener queue.");
+        for(ListenerStats listener : listeners)
+        {
+            for(Map.Entry<String, Long> queue : listener.getRejections().entrySet())
+            {
+                sample(writer, "jda_listener_rejected_total", queue.getValue(),
+                    "listener", listener.getName(), "queue", queue.getKey());
+            }
+        }
+
+        header(writer, "jda_gateway_ping_milliseconds", "gauge", "Heartbeat ping of a JDA instance.");
+        for(int i = 0; i < shards.size(); i++)
+        {
+            JDA jda = shards.get(i);
+            JDA.ShardInfo info = jda.getShardInfo();
+            sample(writer, "jda_gateway_ping_milliseconds", jda.getPing(),
+                "shard", String.valueOf(info == null? i : info.getShardId()));
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        try {
+            StringWriter body = new StringWriter();
+            write(body);
+
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, bytes.length);
+
+            try(OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void header(Writer writer, String name, String type, String help) throws IOException
+    {
+        writer.write("# HELP " + name + " " + help + "\n");
+        writer.write("# TYPE " + name + " " + type + "\n");
+    }
+
+    private static void sample(Writer writer, String name, double value, String... labels) throws IOException
+    {
+        writer.write(name);
+        writer.write('{');
+        for(int i = 0; i < labels.length; i += 2)
+        {
+            if(i > 0)
+                writer.write(',');
+            writer.write(labels[i] + "=\"" + escape(labels[i + 1]) + "\"");
+        }
+        writer.write("} ");
+
+        // Whole numbers are written without a trailing ".0"
+        if(value == (long) value)
+            writer.write(Long.toString((long) value));
+        else
+            writer.write(Double.toString(value));
+        writer.write('\n');
+    }
+
+    private static String escape(String labelValue)
+    {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
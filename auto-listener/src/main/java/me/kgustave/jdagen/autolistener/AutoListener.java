@@ -29,7 +29,9 @@ import java.lang.annotation.*;
  *     <li>The method must be {@code public}.</li>
  *     <li>The method must return {@code void}.</li>
  *     <li>The method must have a single parameter that is a
- *     subclass of {@link net.dv8tion.jda.core.events.Event Event}.</li>
+ *     subclass of {@link net.dv8tion.jda.core.events.Event Event}, or a
+ *     {@link java.util.List List} or array of one if the method is marked
+ *     with {@link Batch @Batch}.</li>
  *     <li>The method is not marked with a  {@link NoEvent @NoEvent}
  *     annotation.</li>
  * </ul>
@@ -38,6 +40,9 @@ import java.lang.annotation.*;
  * where {@code X} is the name of the class that has this annotation applied, unless
  * {@link AutoListener#value()} is specified.
  *
+ * <p>How the generated {@code onEvent} resolves the handlers for a fired event can be
+ * configured using {@link AutoListener#dispatch()}.
+ *
  * @since  1.0
  * @author Kaidan Gustave
  */
@@ -57,4 +62,295 @@ public @interface AutoListener
      * @return The generated class name, or blank if it's default.
      */
     String value() default "";
+
+    /**
+     * The prefix of the {@link Command commands} of the generated class.
+     * <br>If left unset, this will default to {@code "!"}.
+     *
+     * @return The prefix of commands.
+     */
+    String prefix() default "!";
+
+    /**
+     * How the generated class relates to the class this annotation is applied to.
+     * <br>If left unset, this will default to {@link Generation#DELEGATE DELEGATE}.
+     *
+     * @return How the class is generated.
+     */
+    Generation generation() default Generation.DELEGATE;
+
+    /**
+     * The {@link Dispatch Dispatch} strategy the generated {@code onEvent} method uses
+     * to find the methods an event should be delegated to.
+     * <br>If left unset, this will default to {@link Dispatch#INSTANCEOF INSTANCEOF}.
+     *
+     * @return The dispatch strategy of the generated class.
+     */
+    Dispatch dispatch() default Dispatch.INSTANCEOF;
+
+    /**
+     * Whether or not the generated class should count the events it receives
+     * by their runtime class.
+     * <br>The counts are available from a generated static {@code getEventProfile()} method
+     * as an {@link me.kgustave.jdagen.autolistener.runtime.EventProfile EventProfile}, which
+     * can be stored and provided to the processor with the {@code jdagen.autolistener.profile}
+     * option to order generated {@link Dispatch#INSTANCEOF instanceof} checks hottest first.
+     * <br>If left unset, this will default to {@code false}.
+     *
+     * @return {@code true} if the generated class should profile the events it receives.
+     */
+    boolean profile() default false;
+
+    /**
+     * Whether or not the generated class should record invocation metrics.
+     * <br>When enabled, the generated class counts the events it receives, and times every
+     * invocation of each method with a fixed-bucket latency histogram. Recording never
+     * allocates. The metrics are available from a generated {@code getStats()} method as
+     * {@link me.kgustave.jdagen.autolistener.runtime.ListenerStats ListenerStats}.
+     * <br>If left unset, this will default to {@code false}.
+     *
+     * @return {@code true} if the generated class should record invocation metrics.
+     */
+    boolean metrics() default false;
+
+    /**
+     * Whether or not the generated class should emit Java Flight Recorder events.
+     * <br>When enabled, a {@code jdk.jfr.Event} subclass is generated alongside the class,
+     * and one event is committed for each method invocation, holding the event type, the
+     * method, the duration and the thread it ran on. While no recording is active the cost
+     * of this is only a check of {@code isEnabled()}.
+     * <br><b>Note:</b> the generated code requires {@code jdk.jfr}, available in Java 11 and
+     * later.
+     * <br>If left unset, this will default to {@code false}.
+     *
+     * @return {@code true} if the generated class should emit Flight Recorder events.
+     */
+    boolean flightRecorder() default false;
+
+    /**
+     * The default time budget of the methods of the generated class, as a number followed by
+     * a unit: {@code ms}, {@code s}, {@code m}, {@code h} or {@code d}.
+     * <br>When set, a watchdog checks for invocations running over their budget from a
+     * single background thread, and reports them with samples of the stack of the thread
+     * running them. Budgets of single methods can be set with {@link Budget @Budget}.
+     * The watchdog is available from a generated {@code getWatchdog()} method as
+     * {@link me.kgustave.jdagen.autolistener.runtime.Watchdog Watchdog}.
+     * <br>If left unset, only methods marked with {@code @Budget} are watched.
+     *
+     * @return The default time budget of the methods of the generated class.
+     */
+    String watchdog() default "";
+
+    /**
+     * Every how many invocations the generated class measures the bytes allocated by its methods.
+     * <br>Measured invocations read the allocation counter of their thread before and after
+     * the method, and the bytes are summed per method. {@code 1} measures every invocation, larger
+     * values sample on average every Nth invocation of each method and estimate its total from
+     * its own ratio of invocations to samples. The totals are available
+     * from a generated {@code getAllocations()} method as
+     * {@link me.kgustave.jdagen.autolistener.runtime.AllocationStats AllocationStats}.
+     * <br>If left unset, this will default to {@code 0}, and no allocations are measured.
+     *
+     * @return Every how many invocations allocations are measured, or {@code 0} to measure none.
+     */
+    int allocationSampling() default 0;
+
+    /**
+     * Whether or not the generated class should track the latency from receiving an event
+     * to the REST API acknowledging a reply sent by the method handling it.
+     * <br>When enabled, events are stamped with the time they are received, and methods can
+     * wrap the success callbacks of their replies with
+     * {@link me.kgustave.jdagen.autolistener.runtime.DispatchContext#onReply(java.util.function.Consumer)
+     * DispatchContext.onReply} to record it. The latencies are available per method from a
+     * generated {@code getStats()} method as
+     * {@link me.kgustave.jdagen.autolistener.runtime.ListenerStats ListenerStats}.
+     * <br>If left unset, this will default to {@code false}.
+     *
+     * @return {@code true} if the generated class should track reply latency.
+     */
+    boolean trackReplies() default false;
+
+    /**
+     * The {@link Execution Execution} mode the generated class uses to invoke
+     * the methods events are delegated to.
+     * <br>If left unset, this will default to {@link Execution#SYNC SYNC}.
+     *
+     * @return The execution mode of the generated class.
+     */
+    Execution execution() default Execution.SYNC;
+
+    /**
+     * The number of threads the generated class uses for {@link Execution#KEYED KEYED}
+     * and {@link Execution#RING_BUFFER RING_BUFFER} execution, or for
+     * {@link Execution#VIRTUAL VIRTUAL} execution when virtual threads are not available.
+     * <br>If left unset or provided {@code 0} or less, this will default to
+     * the number of available processors.
+     *
+     * @return The number of threads used to invoke methods.
+     */
+    int threads() default 0;
+
+    /**
+     * The maximum number of method invocations the generated class runs at once
+     * when using {@link Execution#VIRTUAL VIRTUAL} execution.
+     * <br>Invocations over this limit wait for a running one to finish, without
+     * blocking the thread that fired the event.
+     * <br>If left unset or provided {@code 0} or less, there is no limit.
+     *
+     * @return The maximum number of concurrent invocations.
+     */
+    int maxConcurrency() default 0;
+
+    /**
+     * The number of slots in the ring buffer used for {@link Execution#RING_BUFFER RING_BUFFER}
+     * execution, rounded up to the nearest power of two.
+     * <br>If left unset, this will default to {@code 1024}.
+     *
+     * @return The size of the ring buffer.
+     */
+    int bufferSize() default 1024;
+
+    /**
+     * The {@link WaitStrategy WaitStrategy} threads use when waiting on the ring buffer
+     * used for {@link Execution#RING_BUFFER RING_BUFFER} execution.
+     * <br>If left unset, this will default to {@link WaitStrategy#PARK PARK}.
+     *
+     * @return The wait strategy of the ring buffer.
+     */
+    WaitStrategy waitStrategy() default WaitStrategy.PARK;
+
+    /**
+     * The {@link Overflow Overflow} policy for events fired while the ring buffer
+     * used for {@link Execution#RING_BUFFER RING_BUFFER} execution is full.
+     * <br>If left unset, this will default to {@link Overflow#BLOCK BLOCK}.
+     *
+     * @return The overflow policy of the ring buffer.
+     */
+    Overflow overflow() default Overflow.BLOCK;
+
+    enum Generation
+    {
+        /**
+         * Constant that causes the generated class to create and hold an instance of
+         * the annotated class, copying its constructors, and forwarding its public
+         * methods and events to that instance.
+         */
+        DELEGATE,
+
+        /**
+         * Constant that causes the generated class to extend the annotated class,
+         * invoking methods on itself, and inheriting its constructors and methods.
+         *
+         * <p>This avoids a second object for every listener, and an extra call for every
+         * invocation, but the annotated class must not be {@code final} or {@code abstract},
+         * and must have a constructor that is not {@code private}.
+         */
+        SUBCLASS
+    }
+
+    enum Dispatch
+    {
+        /**
+         * Constant that causes the generated {@code onEvent} to check the fired event
+         * against every handled event type with a chain of {@code instanceof} checks.
+         *
+         * <p>This is the simplest form of dispatch, but every event fired pays for every
+         * check, even when it matches none of them.
+         */
+        INSTANCEOF,
+
+        /**
+         * Constant that causes the generated {@code onEvent} to resolve the runtime class of
+         * the fired event to a precomputed handler slot using a {@link java.lang.ClassValue ClassValue}.
+         *
+         * <p>Handlers for supertypes (such as {@code GenericGuildMessageEvent}) are flattened into
+         * the slots of their subtypes when the class is generated, so dispatching an event is a
+         * single lookup no matter how many event types the class handles.
+         */
+        TABLE
+    }
+
+    enum Execution
+    {
+        /**
+         * Constant that causes the generated class to invoke methods directly
+         * on the thread that fired the event.
+         */
+        SYNC,
+
+        /**
+         * Constant that causes the generated class to hand events to a pool of
+         * striped serial queues.
+         *
+         * <p>Each method is ordered by the {@link Key Key} set with {@link OrderedBy @OrderedBy}.
+         * Events with the same key are handled in the order they were fired, while events
+         * with different keys are handled in parallel.
+         *
+         * <p>The generated class will have a {@code shutdown()} method to stop its threads.
+         * Events fired after it was called are dropped and counted.
+         */
+        KEYED,
+
+        /**
+         * Constant that causes the generated class to invoke each method on its own
+         * virtual thread when running on JDK 21 or newer, and on a bounded pool of
+         * platform threads otherwise.
+         *
+         * <p>This suits methods that mostly block, for example on {@code RestAction#complete()}
+         * or database calls. The number of invocations running at once can be limited with
+         * {@link AutoListener#maxConcurrency()}.
+         *
+         * <p>The generated class will have a {@code shutdown()} method to stop its threads.
+         */
+        VIRTUAL,
+
+        /**
+         * Constant that causes the generated class to publish events into a preallocated,
+         * lock-free ring buffer, which is drained by dedicated consumer threads that
+         * invoke the methods.
+         *
+         * <p>Publishing neither allocates nor locks, which keeps the thread that fired the
+         * event free under bursts. Events are only handled in the order they were fired
+         * when {@link AutoListener#threads()} is {@code 1}.
+         *
+         * <p>The buffer is configured with {@link AutoListener#bufferSize()},
+         * {@link AutoListener#waitStrategy()} and {@link AutoListener#overflow()}.
+         *
+         * <p>The generated class will have a {@code shutdown()} method to stop its threads.
+         */
+        RING_BUFFER
+    }
+
+    enum WaitStrategy
+    {
+        /**
+         * Constant that causes threads to spin without pausing.
+         * <br>This has the lowest latency, but keeps a core busy at all times.
+         */
+        BUSY_SPIN,
+
+        /**
+         * Constant that causes threads to {@link Thread#yield() yield} between checks.
+         */
+        YIELD,
+
+        /**
+         * Constant that causes threads to spin briefly and then park between checks.
+         * <br>This has the highest latency, but uses next to no CPU while idle.
+         */
+        PARK
+    }
+
+    enum Overflow
+    {
+        /**
+         * Constant that causes the thread firing an event to wait until the buffer has a free slot.
+         */
+        BLOCK,
+
+        /**
+         * Constant that causes events fired while the buffer is full to be dropped.
+         */
+        DROP
+    }
 }
@@ -16,20 +16,46 @@
 package me.kgustave.jdagen.autolistener;
 
 import com.squareup.javapoet.*;
+import me.kgustave.jdagen.autolistener.runtime.AllocationStats;
+import me.kgustave.jdagen.autolistener.runtime.Batcher;
+import me.kgustave.jdagen.autolistener.runtime.Bulkhead;
+import me.kgustave.jdagen.autolistener.runtime.Coalescer;
+import me.kgustave.jdagen.autolistener.runtime.CommandArgs;
+import me.kgustave.jdagen.autolistener.runtime.CommandTrie;
+import me.kgustave.jdagen.autolistener.runtime.DispatchContext;
+import me.kgustave.jdagen.autolistener.runtime.EventProfile;
+import me.kgustave.jdagen.autolistener.runtime.Instrumented;
+import me.kgustave.jdagen.autolistener.runtime.KeyedExecutor;
+import me.kgustave.jdagen.autolistener.runtime.KeywordMatcher;
+import me.kgustave.jdagen.autolistener.runtime.Keys;
+import me.kgustave.jdagen.autolistener.runtime.ListenerStats;
+import me.kgustave.jdagen.autolistener.runtime.MessageContext;
+import me.kgustave.jdagen.autolistener.runtime.RingBufferExecutor;
+import me.kgustave.jdagen.autolistener.runtime.Sampler;
+import me.kgustave.jdagen.autolistener.runtime.TokenBuckets;
+import me.kgustave.jdagen.autolistener.runtime.SlottedListener;
+import me.kgustave.jdagen.autolistener.runtime.TypedListener;
+import me.kgustave.jdagen.autolistener.runtime.VirtualThreadExecutor;
+import me.kgustave.jdagen.autolistener.runtime.Watchdog;
 import me.kgustave.jdagen.commons.utils.ElementUtils;
+import net.dv8tion.jda.core.entities.ChannelType;
 import net.dv8tion.jda.core.events.Event;
-import net.dv8tion.jda.core.hooks.EventListener;
 
 import javax.annotation.Generated;
 import javax.annotation.Nullable;
 import javax.annotation.processing.Messager;
 import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.NoType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.time.Duration;
 import java.util.*;
+import java.util.regex.Pattern;
 
 import static com.squareup.javapoet.TypeName.*;
 
@@ -39,22 +65,77 @@ import static com.squareup.javapoet.TypeName.*;
 @SuppressWarnings("CodeBlock2Expr")
 class AutoListenerGenerator
 {
+    private static final String TYPES_FIELD = "DISPATCH_TYPES";
+    private static final String SLOTS_FIELD = "DISPATCH_SLOTS";
+    private static final String PROFILE_FIELD = "EVENT_PROFILE";
+    private static final String EXECUTOR_FIELD = "executor";
+    private static final String INVOKE_METHOD = "invokeHandler";
+    private static final String STATS_FIELD = "stats";
+    private static final String WATCHDOG_FIELD = "watchdog";
+    private static final String ALLOCATIONS_FIELD = "allocations";
+    private static final String RECEIVED_VAR = "received";
+    private static final String COMMANDS_SUFFIX = "_COMMANDS";
+    private static final String KEYWORDS_SUFFIX = "_KEYWORDS";
+    private static final String GUILDS_SUFFIX = "_GUILDS";
+    private static final String JFR_EVENT = "DispatchEvent";
+    private static final String HANDLER_NAMES_FIELD = "HANDLER_NAMES";
+    private static final String HANDLER_TYPES_FIELD = "HANDLER_TYPES";
+
+    // HotSpot won't compile methods past 8000 bytes of bytecode at all (HugeMethodLimit)
+    private static final int HUGE_METHOD_LIMIT = 8000;
+
+    // The package of a qualified type name
+    private static final Pattern QUALIFIER = Pattern.compile("(?<![\\w$.])(?:[a-z_$][\\w$]*\\.)+(?=[A-Z])");
+
+    // Class files store string constants as modified UTF-8, in at most 65535 bytes
+    private static final int CONSTANT_LIMIT = 65535;
+
     private final TypeElement original;
+    private final AutoListener autoListener;
     private final Map<Class<? extends Event>, List<Element>> eventMap;
     private final List<ExecutableElement> nonEvents;
+    private final Map<String, Long> eventProfile;
+    private final boolean slotted; // Whether the listener is part of a hub
+    private final List<Element> handlers;
+    private final Map<Element, String> bulkheads;
+    private final Map<Element, String> batchers;
+    private final Map<Element, CodeBlock> coalescers; // Statements holding events for each method
+    private final Map<Class<? extends Event>, String> routers;
+    private final Map<Element, String> binders; // Methods binding command arguments
+    private final Map<Class<? extends Event>, String> matchers;
+    private final Map<Element, List<CodeBlock>> guards; // Conditions checked before methods are invoked
+    private final Map<Element, String> samplers;
+    private final Map<Element, CodeBlock> throttles; // Conditions taking a permit for each method
+    private final List<String> shutdowns; // Fields stopped by the generated shutdown()
+    private final Set<String> fieldNames;
     private final Elements elements;
     private final Types types;
 
-    // Provide messager for debugging only.
-    @SuppressWarnings({"unused", "FieldCanBeLocal"})
+    // Errors caused by a single element are reported on it.
     private final Messager messager;
 
-    AutoListenerGenerator(TypeElement original, Elements elements, Messager messager, Types types)
+    AutoListenerGenerator(TypeElement original, AutoListener autoListener, Map<String, Long> eventProfile,
+                          boolean slotted, Elements elements, Messager messager, Types types)
     {
         this.original = original;
-        this.eventMap = new HashMap<>();
+        this.autoListener = autoListener;
+        this.eventProfile = eventProfile;
+        this.slotted = slotted;
+        this.eventMap = new LinkedHashMap<>(); // Keep declaration order
         this.elements = elements;
         this.nonEvents = new ArrayList<>();
+        this.handlers = new ArrayList<>();
+        this.bulkheads = new HashMap<>();
+        this.batchers = new HashMap<>();
+        this.coalescers = new HashMap<>();
+        this.routers = new HashMap<>();
+        this.binders = new HashMap<>();
+        this.matchers = new HashMap<>();
+        this.guards = new HashMap<>();
+        this.samplers = new HashMap<>();
+        this.throttles = new HashMap<>();
+        this.shutdowns = new ArrayList<>();
+        this.fieldNames = new HashSet<>();
         this.types = types;
 
         this.messager = messager;
@@ -65,6 +146,7 @@ class AutoListenerGenerator
         List<Element> eventList = eventMap.getOrDefault(clazz, new ArrayList<>());
 
         eventList.add(element);
+        handlers.add(element);
 
         eventMap.put(clazz, eventList);
     }
@@ -74,11 +156,15 @@ class AutoListenerGenerator
         nonEvents.add(element);
     }
 
+    Set<Class<? extends Event>> getEventTypes()
+    {
+        return eventMap.keySet();
+    }
+
     TypeSpec build(@Nullable String name)
     {
-        TypeSpec.Builder builder = TypeSpec.classBuilder(
-            name == null? original.getSimpleName().toString() + AutoListenerProcessor.LISTENER_SUFFIX : name
-        );
+        String className = name == null? original.getSimpleName().toString() + AutoListenerProcessor.LISTENER_SUFFIX : name;
+        TypeSpec.Builder builder = TypeSpec.classBuilder(className);
 
         // Copy annotations, except @AutoListener
         original.getAnnotationMirrors().stream().filter(a -> {
@@ -93,14 +179,28 @@ class AutoListenerGenerator
         builder.addAnnotation(AnnotationSpec.builder(Generated.class).addMember("value",
             CodeBlock.builder().add("\"me.kgustave.jdagen.autolistener.AutoListenerProcessor\"").build()).build());
 
-        // Implement EventListener
-        builder.addSuperinterface(EventListener.class);
+        // Implement EventListener, along with the types of events handled
+        builder.addSuperinterface(TypedListener.class);
+        addEventTypes(builder);
+
+        boolean subclass = autoListener.generation() == AutoListener.Generation.SUBCLASS;
 
-        original.getInterfaces().forEach(inter -> builder.addSuperinterface(get(inter)));
-        TypeMirror superclass = original.getSuperclass();
-        if(superclass.getKind() != TypeKind.NONE && !(superclass instanceof NoType))
+        if(subclass)
         {
-            builder.superclass(get(superclass));
+            if(original.getModifiers().contains(Modifier.FINAL) || original.getModifiers().contains(Modifier.ABSTRACT))
+                throw new IllegalStateException(original.getSimpleName()+" cannot be subclassed if it's final or abstract!");
+
+            // Everything else is inherited
+            builder.superclass(get(original.asType()));
+        }
+        else
+        {
+            original.getInterfaces().forEach(inter -> builder.addSuperinterface(get(inter)));
+            TypeMirror superclass = original.getSuperclass();
+            if(superclass.getKind() != TypeKind.NONE && !(superclass instanceof NoType))
+            {
+                builder.superclass(get(superclass));
+            }
         }
 
         // We will need these later if there are any because the
@@ -116,11 +216,53 @@ class AutoListenerGenerator
         }
 
         // Instance field for the original
-        builder.addField(get(original.asType()), "instance", Modifier.PRIVATE, Modifier.FINAL);
+        if(!subclass)
+            builder.addField(get(original.asType()), "instance", Modifier.PRIVATE, Modifier.FINAL);
+
+        if(autoListener.execution() != AutoListener.Execution.SYNC)
+            addExecutor(builder, className);
+
+        if(hasStats())
+            addStats(builder, className);
+
+        if(autoListener.flightRecorder())
+            addFlightRecorderEvent(builder, className);
+
+        if(isWatched())
+            addWatchdog(builder, className);
+
+        if(autoListener.allocationSampling() > 0)
+            addAllocations(builder, className);
+
+        addBulkheads(builder, className);
+        addBatchers(builder);
+        addCoalescers(builder);
+        addCommandRouters(builder);
+        addCommandBinders(builder);
+        addKeywordMatchers(builder);
+        addGuards(builder);
+        addSamplers(builder);
+        addThrottles(builder);
+
+        if(hasStats())
+            addQueues(builder);
+
+        if(usesInvokeHandler())
+            addInvokeHandler(builder);
+
+        if(!shutdowns.isEmpty())
+            addShutdown(builder);
 
         // Get constructors
         List<ExecutableElement> constructors = ElementUtils.getConstructors(original);
 
+        if(subclass)
+        {
+            addSuperConstructors(builder, constructors);
+            addOnEvent(builder);
+            return checkConflicts(builder.build(), Collections.emptyList());
+        }
+
         // If there are no constructors, we need to add a default
         if(constructors.isEmpty()) {
             CodeBlock.Builder code = CodeBlock
@@ -170,6 +312,7 @@ class AutoListenerGenerator
         }
 
         // Copy all public
+        List<MethodSpec> copies = new ArrayList<>();
         for(ExecutableElement nonEventMethod : nonEvents)
         {
             MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(nonEventMethod.getSimpleName().toString());
@@ -206,9 +349,17 @@ class AutoListenerGenerator
             methodBuilder.addModifiers(nonEventMethod.getModifiers());
             code.addStatement(")");
             methodBuilder.addCode(code.build());
-            builder.addMethod(methodBuilder.build());
+            copies.add(methodBuilder.build());
         }
+        builder.addMethods(copies);
+
+        addOnEvent(builder);
+
+        return checkConflicts(builder.build(), copies);
+    }
 
+    private void addOnEvent(TypeSpec.Builder builder)
+    {
         MethodSpec.Builder onEvent = MethodSpec
             .methodBuilder("onEvent")
             .addAnnotation(Override.class)
@@ -217,22 +368,1822 @@ class AutoListenerGenerator
 
         CodeBlock.Builder block = CodeBlock.builder();
 
+        if(autoListener.profile())
+            addEventProfile(builder, block);
+
+        if(hasStats())
+            block.addStatement("$L.seen()", STATS_FIELD);
+
+        if(autoListener.trackReplies())
+            block.addStatement("long $L = $T.nanoTime()", RECEIVED_VAR, System.class);
+
+        if(slotted)
+        {
+            addSlottedDispatch(builder, onEvent, block);
+            return;
+        }
+
+        if(autoListener.dispatch() == AutoListener.Dispatch.TABLE)
+            addTableDispatch(builder, block);
+        else
+            addInstanceofDispatch(builder, block);
+
+        onEvent.addCode(block.build());
+
+        builder.addMethod(onEvent.build());
+    }
+
+    // Listeners of a hub are passed the slot of each event, which the hub only finds once
+    // for each type of event. Their own onEvent finds the slot the same way it would find
+    // the branch of the event, and both are dispatched through the same code.
+    private void addSlottedDispatch(TypeSpec.Builder builder, MethodSpec.Builder onEvent, CodeBlock.Builder block)
+    {
+        builder.addSuperinterface(SlottedListener.class);
+
+        List<Class<? extends Event>> slots = slotOrder();
+        addTypesField(builder, slots);
+
+        builder.addMethod(MethodSpec.methodBuilder("getSlot")
+                                    .addAnnotation(Override.class)
+                                    .addModifiers(Modifier.PUBLIC)
+                                    .returns(int.class)
+                                    .addParameter(ParameterizedTypeName.get(ClassName.get(Class.class),
+                                        WildcardTypeName.subtypeOf(Object.class)), "type")
+                                    .addCode(slotSearch())
+                                    .build());
+
+        if(autoListener.dispatch() == AutoListener.Dispatch.TABLE)
+        {
+            addSlotsField(builder);
+            onEvent.addStatement("onEvent($L.get(event.getClass()), event)", SLOTS_FIELD);
+        }
+        else
+        {
+            CodeBlock.Builder find = CodeBlock.builder();
+            List<Class<? extends Event>> order = branchOrder();
+            for(int i = 0; i < order.size(); i++)
+            {
+                find.add(i == 0? "if(event instanceof $T) {\n" : "} else if(event instanceof $T) {\n", order.get(i))
+                    .indent()
+                    .addStatement("onEvent($L, event)", slots.indexOf(order.get(i)) + 1)
+                    .unindent();
+            }
+
+            if(order.isEmpty())
+                find.addStatement("onEvent(0, event)");
+            else
+                find.add("} else {\n").indent().addStatement("onEvent(0, event)").unindent().add("}\n");
+            onEvent.addCode(find.build());
+        }
+        builder.addMethod(onEvent.build());
+
+        if(!slots.isEmpty())
+            addSlotSwitch(builder, block, slots, CodeBlock.of("slot"));
+
+        builder.addMethod(MethodSpec.methodBuilder("onEvent")
+                                    .addAnnotation(Override.class)
+                                    .addModifiers(Modifier.PUBLIC)
+                                    .addParameter(int.class, "slot")
+                                    .addParameter(get(elements.getTypeElement(Event.class.getCanonicalName()).asType()), "event")
+                                    .addCode(block.build())
+                                    .build());
+    }
+
+    private void addSuperConstructors(TypeSpec.Builder builder, List<ExecutableElement> constructors)
+    {
+        // Only private constructors
+        if(constructors.isEmpty())
+            throw new IllegalStateException(original.getSimpleName()+" cannot be subclassed without a constructor " +
+                                            "that is not private!");
+
+        for(ExecutableElement constructor : constructors)
+        {
+            MethodSpec.Builder constructorSpec = MethodSpec.constructorBuilder();
+
+            // Reapply annotations
+            constructor.getAnnotationMirrors().forEach(annotation ->
+                constructorSpec.addAnnotation(AnnotationSpec.get(annotation)));
+            // Rethrow exceptions
+            constructor.getThrownTypes().forEach(thrown ->
+                constructorSpec.addException(get(thrown)));
+
+            CodeBlock.Builder args = CodeBlock.builder();
+            List<? extends VariableElement> params = constructor.getParameters();
+            for(int i = 0; i < params.size(); i++)
+            {
+                VariableElement param = params.get(i);
+                Set<Modifier> modifiers = param.getModifiers();
+
+                constructorSpec.addParameter(get(param.asType()), param.getSimpleName().toString(),
+                    modifiers.toArray(new Modifier[modifiers.size()]));
+                args.add(i == 0? "$N" : ", $N", param.getSimpleName().toString());
+            }
+
+            builder.addMethod(constructorSpec.addModifiers(constructor.getModifiers())
+                                             .addStatement("super($L)", args.build())
+                                             .build());
+        }
+    }
+
+    private void addEventTypes(TypeSpec.Builder builder)
+    {
+        CodeBlock.Builder eventTypes = CodeBlock.builder().add("new $T<?>[] {", Class.class);
+        int i = 0;
+        for(Class<? extends Event> cla : eventMap.keySet())
+            eventTypes.add(i++ == 0? "$T.class" : ", $T.class", cla);
+
+        builder.addMethod(MethodSpec.methodBuilder("getEventTypes")
+                                    .addAnnotation(Override.class)
+                                    .addModifiers(Modifier.PUBLIC)
+                                    .returns(ArrayTypeName.of(ParameterizedTypeName.get(ClassName.get(Class.class),
+                                        WildcardTypeName.subtypeOf(Object.class))))
+                                    .addStatement("return $L", eventTypes.add("}").build())
+                                    .build());
+    }
+
+    private void addExecutor(TypeSpec.Builder builder, String className)
+    {
+        final FieldSpec executor;
+        switch(autoListener.execution())
+        {
+            case KEYED:
+                executor = FieldSpec.builder(KeyedExecutor.class, EXECUTOR_FIELD, Modifier.PRIVATE, Modifier.FINAL)
+                                    .initializer("new $T($S, $L)", KeyedExecutor.class,
+                                        className, autoListener.threads())
+                                    .build();
+                break;
+
+            case VIRTUAL:
+                executor = FieldSpec.builder(VirtualThreadExecutor.class, EXECUTOR_FIELD, Modifier.PRIVATE, Modifier.FINAL)
+                                    .initializer("new $T($S, $L, $L)", VirtualThreadExecutor.class,
+                                        className, autoListener.threads(), autoListener.maxConcurrency())
+                                    .build();
+                break;
+
+            case RING_BUFFER:
+                executor = FieldSpec.builder(RingBufferExecutor.class, EXECUTOR_FIELD, Modifier.PRIVATE, Modifier.FINAL)
+                                    .initializer("new $T($S, $L, $L, $T.$L, $T.$L, this::$L)", RingBufferExecutor.class,
+                                        className, autoListener.bufferSize(), autoListener.threads(),
+                                        AutoListener.WaitStrategy.class, autoListener.waitStrategy(),
+                                        AutoListener.Overflow.class, autoListener.overflow(), INVOKE_METHOD)
+                                    .build();
+                break;
+
+            default:
+                return;
+        }
+
+        builder.addField(executor);
+        fieldNames.add(EXECUTOR_FIELD);
+        shutdowns.add(EXECUTOR_FIELD);
+    }
+
+    private void addInvokeHandler(TypeSpec.Builder builder)
+    {
+        // Every instrumented invocation goes through here, the
+        // wrapping code is only generated once this way.
+        List<CodeBlock> before = new ArrayList<>();
+        List<CodeBlock> after = new ArrayList<>();
+
+        if(autoListener.metrics())
+        {
+            before.add(CodeBlock.builder().addStatement("long start = $T.nanoTime()", System.class).build());
+            after.add(CodeBlock.builder().addStatement("$L.record(handler, $T.nanoTime() - start)",
+                STATS_FIELD, System.class).build());
+        }
+
+        if(isWatched())
+        {
+            before.add(CodeBlock.builder().addStatement("int watched = $L.begin(handler, event)", WATCHDOG_FIELD).build());
+            after.add(CodeBlock.builder().addStatement("$L.end(watched)", WATCHDOG_FIELD).build());
+        }
+
+        if(autoListener.flightRecorder())
+        {
+            ClassName dispatchEvent = ClassName.bestGuess(JFR_EVENT);
+            before.add(CodeBlock.builder()
+                                .addStatement("$T dispatch = new $T()", dispatchEvent, dispatchEvent)
+                                .beginControlFlow("if(dispatch.isEnabled())")
+                                .addStatement("dispatch.begin()")
+                                .endControlFlow()
+                                .build());
+            after.add(CodeBlock.builder()
+                               .beginControlFlow("if(dispatch.shouldCommit())")
+                               .addStatement("dispatch.eventType = event instanceof $T? event.getClass() : $L[handler]",
+                                   Event.class, HANDLER_TYPES_FIELD)
+                               .addStatement("dispatch.handler = $L[handler]", HANDLER_NAMES_FIELD)
+                               .addStatement("dispatch.commit()")
+                               .endControlFlow()
+                               .build());
+        }
+
+        if(autoListener.trackReplies())
+        {
+            before.add(CodeBlock.builder().addStatement("$T context = $T.enter($L, handler, $L)",
+                DispatchContext.class, DispatchContext.class, STATS_FIELD, RECEIVED_VAR).build());
+            after.add(CodeBlock.builder().addStatement("$T.exit(context)", DispatchContext.class).build());
+        }
+
+        // Measured closest to the method, so the other instrumentation isn't counted
+        if(autoListener.allocationSampling() > 0)
+        {
+            before.add(CodeBlock.builder().addStatement("long allocated = $L.begin(handler)", ALLOCATIONS_FIELD).build());
+            after.add(0, CodeBlock.builder().addStatement("$L.end(handler, allocated)", ALLOCATIONS_FIELD).build());
+        }
+
+        CodeBlock.Builder code = CodeBlock.builder();
+        before.forEach(code::add);
+
+        if(!after.isEmpty())
+            code.beginControlFlow("try");
+
+        List<CodeBlock> cases = new ArrayList<>();
+        boolean[] unchecked = new boolean[handlers.size()];
+        for(int i = 0; i < handlers.size(); i++)
+        {
+            ExecutableElement method = (ExecutableElement) handlers.get(i);
+            TypeMirror param = method.getParameters().get(0).asType();
+
+            // Batched lists can only be cast unchecked
+            unchecked[i] = param.getKind() == TypeKind.DECLARED && !((DeclaredType) param).getTypeArguments().isEmpty();
+
+            // Shared contexts are passed instead of their events, except through
+            // the ring buffer, where each method gets a context of its own.
+            CodeBlock call;
+            if(!hasContext(method))
+                call = callOf(method, CodeBlock.of("($T) event", get(param)), null);
+            else if(sharesContext())
+                call = callOf(method, CodeBlock.of("($T) (($T) event).getEvent()", get(param), MessageContext.class),
+                    CodeBlock.of("($T) event", MessageContext.class));
+            else
+                call = callOf(method, CodeBlock.of("($T) event", get(param)),
+                    CodeBlock.of("new $T(($T) event, (($T) event).getMessage())", MessageContext.class, get(param), get(param)));
+
+            cases.add(CodeBlock.builder()
+                               .add("case $L:\n", i).indent()
+                               .addStatement("$L", call)
+                               .addStatement("break")
+                               .unindent()
+                               .build());
+        }
+
+        // The finally block is copied to both the normal and the exceptional exit
+        int overhead = sizeOf(before) + 2 * sizeOf(after) + sizeOf(CodeBlock.of("try {\n} finally {\n}\n"));
+        boolean suppress = false;
+        if(overhead + sizeOf(switchOf(cases, 0, cases.size())) <= HUGE_METHOD_LIMIT)
+        {
+            code.add(switchOf(cases, 0, cases.size()));
+            for(boolean cast : unchecked)
+                suppress |= cast;
+        }
+        else
+        {
+            addInvokeParts(builder, code, cases, unchecked);
+        }
+
+        if(!after.isEmpty())
+        {
+            code.nextControlFlow("finally");
+            after.forEach(code::add);
+            code.endControlFlow();
+        }
+
+        MethodSpec.Builder invokeHandler = MethodSpec.methodBuilder(INVOKE_METHOD)
+                                                     .addModifiers(Modifier.PRIVATE)
+                                                     .addParameter(int.class, "handler")
+                                                     .addParameter(Object.class, "event");
+
+        if(autoListener.trackReplies())
+            invokeHandler.addParameter(long.class, RECEIVED_VAR);
+
+        invokeHandler.addCode(code.build());
+
+        if(suppress)
+        {
+            invokeHandler.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                                                      .addMember("value", "$S", "unchecked").build());
+        }
+
+        builder.addMethod(invokeHandler.build());
+    }
+
+    // Splits the cases of invokeHandler into methods that are each small enough, and calls
+    // the one with the case of the handler. The instrumentation stays in invokeHandler.
+    private void addInvokeParts(TypeSpec.Builder builder, CodeBlock.Builder code,
+                                List<CodeBlock> cases, boolean[] unchecked)
+    {
+        int from = 0;
+        while(from < cases.size())
+        {
+            int to = from + 1;
+            while(to < cases.size() && sizeOf(switchOf(cases, from, to + 1)) <= HUGE_METHOD_LIMIT)
+                to++;
+
+            String name = uniqueName(INVOKE_METHOD + "s");
+            MethodSpec.Builder part = MethodSpec.methodBuilder(name)
+                                                .addModifiers(Modifier.PRIVATE)
+                                                .addParameter(int.class, "handler")
+                                                .addParameter(Object.class, "event")
+                                                .addCode(switchOf(cases, from, to));
+            for(int i = from; i < to; i++)
+            {
+                if(unchecked[i])
+                {
+                    part.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                                                     .addMember("value", "$S", "unchecked").build());
+                    break;
+                }
+            }
+            builder.addMethod(part.build());
+
+            if(to == cases.size())
+            {
+                if(from > 0)
+                    code.nextControlFlow("else");
+                code.addStatement("$N(handler, event)", name);
+                if(from > 0)
+                    code.endControlFlow();
+            }
+            else
+            {
+                if(from == 0)
+                    code.beginControlFlow("if(handler < $L)", to);
+                else
+                    code.nextControlFlow("else if(handler < $L)", to);
+                code.addStatement("$N(handler, event)", name);
+            }
+            from = to;
+        }
+    }
+
+    private static CodeBlock switchOf(List<CodeBlock> cases, int from, int to)
+    {
+        CodeBlock.Builder code = CodeBlock.builder().beginControlFlow("switch(handler)");
+        for(int i = from; i < to; i++)
+            code.add(cases.get(i));
+        return code.endControlFlow().build();
+    }
+
+    private void addStats(TypeSpec.Builder builder, String className)
+    {
+        CodeBlock.Builder names = CodeBlock.builder();
+        for(Element handler : handlers)
+            names.add(", $S", handlerName(handler));
+
+        builder.addSuperinterface(Instrumented.class);
+        builder.addField(FieldSpec.builder(ListenerStats.class, STATS_FIELD, Modifier.PRIVATE, Modifier.FINAL)
+                                  .initializer("new $T($S$L)", ListenerStats.class, className, names.build())
+                                  .build());
+        fieldNames.add(STATS_FIELD);
+
+        builder.addMethod(MethodSpec.methodBuilder("getStats")
+                                    .addAnnotation(Override.class)
+                                    .addModifiers(Modifier.PUBLIC)
+                                    .returns(ListenerStats.class)
+                                    .addStatement("return $L", STATS_FIELD)
+                                    .build());
+    }
+
+    private void addBulkheads(TypeSpec.Builder builder, String className)
+    {
+        for(List<Element> methods : eventMap.values())
+        {
+            for(Element method : methods)
+            {
+                Blocking blocking = method.getAnnotation(Blocking.class);
+                CpuBound cpuBound = method.getAnnotation(CpuBound.class);
+
+                if(blocking == null && cpuBound == null)
+                    continue;
+
+                if(blocking != null && cpuBound != null)
+                    throw new IllegalStateException(method.getSimpleName()+" cannot be both @Blocking and @CpuBound!");
+
+                String field = fieldName(method, "Bulkhead");
+
+                int threads = blocking != null? blocking.threads() : cpuBound.threads();
+                int queue = blocking != null? blocking.queue() : cpuBound.queue();
+
+                builder.addField(FieldSpec.builder(Bulkhead.class, field, Modifier.PRIVATE, Modifier.FINAL)
+                                          .initializer("new $T($S, $L, $L)", Bulkhead.class,
+                                              className + "-" + method.getSimpleName(), threads, queue)
+                                          .build());
+
+                bulkheads.put(method, field);
+                shutdowns.add(field);
+            }
+        }
+    }
+
+    private void addBatchers(TypeSpec.Builder builder)
+    {
         eventMap.forEach((cla, methods) -> {
-            block.add("if(event instanceof $T) {\n", get(elements.getTypeElement(cla.getCanonicalName()).asType()));
-            block.indent();
+            for(Element method : methods)
+            {
+                Batch batch = method.getAnnotation(Batch.class);
+
+                if(batch == null)
+                    continue;
+
+                String field = fieldName(method, "Batcher");
+                TypeMirror param = ((ExecutableElement) method).getParameters().get(0).asType();
+
+                CodeBlock batchArg = param.getKind() == TypeKind.ARRAY?
+                    CodeBlock.of("batch.toArray(new $T[batch.size()])", cla) : CodeBlock.of("batch");
+
+                // This is called from a lambda in a field initializer where the
+                // instance cannot be referenced yet, so it goes through invokeHandler.
+                // Batches are not the reply to a single event, so they are not tracked.
+                CodeBlock flush = invokeCall(method, batchArg, CodeBlock.of("0L"));
+
+                if(bulkheads.containsKey(method))
+                    flush = CodeBlock.of("$L.execute(() -> $L)", bulkheads.get(method), flush);
+
+                long maxDelay = durationOf(method, batch.maxDelay(), "@Batch on "+method.getSimpleName()+" has an invalid maxDelay");
+
+                CodeBlock executor = deliveryExecutorOf(method);
+                CodeBlock initializer = executor == null?
+                    CodeBlock.of("new $T<>($L, $LL, batch -> $L)", Batcher.class, batch.size(), maxDelay, flush) :
+                    CodeBlock.of("new $T<>($L, $LL, $L, batch -> $L)", Batcher.class, batch.size(), maxDelay, executor, flush);
+
+                builder.addField(FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(Batcher.class), get(cla)),
+                                                   field, Modifier.PRIVATE, Modifier.FINAL)
+                                          .initializer(initializer)
+                                          .build());
+
+                batchers.put(method, field);
+
+                // Flush pending batches before executors are shut down
+                shutdowns.add(0, field);
+            }
+        });
+    }
+
+    // Timed deliveries are handed off by the timer thread. Methods with a bulkhead are already
+    // delivered through it, listeners with virtual threads use those, and otherwise the shared
+    // pool of the runtime is used, which is what null stands for.
+    @Nullable
+    private CodeBlock deliveryExecutorOf(Element method)
+    {
+        if(bulkheads.containsKey(method))
+            return CodeBlock.of("$T::run", Runnable.class);
+        if(autoListener.execution() == AutoListener.Execution.VIRTUAL)
+            return CodeBlock.of("$L", EXECUTOR_FIELD);
+        return null;
+    }
 
+    private void addCoalescers(TypeSpec.Builder builder)
+    {
+        eventMap.forEach((cla, methods) -> {
             for(Element method : methods)
-                block.addStatement("instance."+method.getSimpleName().toString()+"(("+cla.getSimpleName()+")event)");
+            {
+                Coalesce coalesce = method.getAnnotation(Coalesce.class);
 
-            block.unindent();
+                if(coalesce == null)
+                    continue;
+
+                if(batchers.containsKey(method))
+                    throw new IllegalStateException(method.getSimpleName()+" cannot be both @Batch and @Coalesce!");
+                if(hasContext(method))
+                    throw new IllegalStateException(method.getSimpleName()+" cannot have a MessageContext with @Coalesce!");
+
+                TypeElement event = elements.getTypeElement(cla.getCanonicalName());
+                String accessor = accessorOf(event, coalesce.key().getAccessors());
+                if(accessor == null)
+                    throw new IllegalStateException(method.getSimpleName()+" is coalesced by "+coalesce.key()+", but "+
+                                                    cla.getSimpleName()+" has no "+coalesce.key().getAccessors()[0]+"()!");
+
+                long window = durationOf(method, coalesce.window(), "@Coalesce on "+method.getSimpleName()+" has an invalid window");
+
+                String field = fieldName(method, "Coalescer");
+
+                // Like batches, these are delivered through invokeHandler
+                // and are not the reply to the events they were fired for.
+                CodeBlock deliver = invokeCall(method, CodeBlock.of("event"), CodeBlock.of("0L"));
+
+                if(bulkheads.containsKey(method))
+                    deliver = CodeBlock.of("$L.execute(() -> $L)", bulkheads.get(method), deliver);
+
+                CodeBlock executor = deliveryExecutorOf(method);
+                CodeBlock initializer = executor == null?
+                    CodeBlock.of("new $T<>($LL, event -> $L)", Coalescer.class, window, deliver) :
+                    CodeBlock.of("new $T<>($LL, $L, event -> $L)", Coalescer.class, window, executor, deliver);
 
-            block.add("}\n");
+                builder.addField(FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(Coalescer.class), get(cla)),
+                                                   field, Modifier.PRIVATE, Modifier.FINAL)
+                                          .initializer(initializer)
+                                          .build());
+
+                coalescers.put(method, CodeBlock.of("$L.add($T.of(e.$N()), e)", field, Keys.class, accessor));
+
+                // Deliver pending events before executors are shut down
+                shutdowns.add(0, field);
+            }
         });
+    }
 
-        onEvent.addCode(block.build());
+    private void addCommandRouters(TypeSpec.Builder builder)
+    {
+        eventMap.forEach((cla, methods) -> {
+            CommandTrieBuilder trie = null;
+            for(Element method : methods)
+            {
+                Command command = method.getAnnotation(Command.class);
+                if(command == null)
+                    continue;
 
-        builder.addMethod(onEvent.build());
+                if(trie == null)
+                    trie = new CommandTrieBuilder();
+
+                for(String name : command.value())
+                    trie.add(autoListener.prefix() + name);
+            }
+
+            if(trie == null)
+                return;
+
+            String field = constantPrefixOf(cla) + COMMANDS_SUFFIX;
+            String[] encoded = trie.build();
+
+            builder.addField(FieldSpec.builder(CommandTrie.class, field, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                                      .initializer("new $T($L, $L, $L, $L)", CommandTrie.class, literal(encoded[0]),
+                                          literal(encoded[1]), literal(encoded[2]), literal(encoded[3]))
+                                      .build());
+            routers.put(cla, field);
+        });
+    }
+
+    private void addCommandBinders(TypeSpec.Builder builder)
+    {
+        for(Element handler : handlers)
+        {
+            ExecutableElement method = (ExecutableElement) handler;
+            List<? extends VariableElement> params = method.getParameters();
+            boolean context = hasContext(method);
+            if(method.getAnnotation(Command.class) == null || params.size() == (context? 2 : 1))
+                continue;
+
+            // Arguments start after the prefix and name the trie matched, which may contain whitespace
+            String router = eventMap.entrySet().stream()
+                                    .filter(entry -> entry.getValue().contains(method))
+                                    .map(entry -> routers.get(entry.getKey()))
+                                    .findFirst().orElseThrow(IllegalStateException::new);
+            CodeBlock.Builder code = CodeBlock.builder()
+                .addStatement("$T content = $L", String.class, context? "context.getContent()" : "e.getMessage().getContentRaw()")
+                .addStatement("int i = $T.skip(content, $L.end(content))", CommandArgs.class, router);
+
+            boolean declaredEnd = false;
+            CodeBlock.Builder args = CodeBlock.builder().add(context? "e, context" : "e");
+            for(int i = context? 2 : 1; i < params.size(); i++)
+            {
+                TypeMirror type = params.get(i).asType();
+                String arg = "arg" + i;
+                boolean last = i == params.size() - 1;
+
+                // A String last takes the rest of the message
+                if(last && isType(type, String.class))
+                {
+                    code.addStatement("$T $L = $T.rest(content, i)", String.class, arg, CommandArgs.class);
+                    args.add(", $L", arg);
+                    continue;
+                }
+
+                code.addStatement((declaredEnd? "" : "int ") + "end = $T.end(content, i)", CommandArgs.class);
+                declaredEnd = true;
+
+                switch(type.getKind())
+                {
+                    case INT:
+                        code.addStatement("long $L = $T.parseInt(content, i, end)", arg, CommandArgs.class)
+                            .addStatement("if($L == $T.INVALID) return", arg, CommandArgs.class);
+                        args.add(", (int) $L", arg);
+                        break;
+
+                    case LONG:
+                        code.addStatement("long $L = $T.parseLong(content, i, end)", arg, CommandArgs.class)
+                            .addStatement("if($L == $T.INVALID) return", arg, CommandArgs.class);
+                        args.add(", $L", arg);
+                        break;
+
+                    case DOUBLE:
+                        code.addStatement("double $L = $T.parseDouble(content, i, end)", arg, CommandArgs.class)
+                            .addStatement("if($T.isNaN($L)) return", Double.class, arg);
+                        args.add(", $L", arg);
+                        break;
+
+                    default:
+                        if(isType(type, String.class))
+                        {
+                            code.addStatement("if(i == end) return")
+                                .addStatement("$T $L = content.substring(i, end)", String.class, arg);
+                            args.add(", $L", arg);
+                        }
+                        else
+                        {
+                            code.addStatement("long $L = $T.parseDuration(content, i, end)", arg, CommandArgs.class)
+                                .addStatement("if($L == $T.INVALID) return", arg, CommandArgs.class);
+                            args.add(", $T.ofMillis($L)", Duration.class, arg);
+                        }
+                }
+
+                if(!last)
+                    code.addStatement("i = $T.skip(content, end)", CommandArgs.class);
+            }
+
+            code.addStatement("$L.$N($L)", receiver(), method.getSimpleName(), args.build());
+
+            String binder = fieldName(method, "Command");
+            MethodSpec.Builder binderSpec = MethodSpec.methodBuilder(binder)
+                                                      .addModifiers(Modifier.PRIVATE)
+                                                      .addParameter(get(params.get(0).asType()), "e");
+            if(context)
+                binderSpec.addParameter(MessageContext.class, "context");
+
+            builder.addMethod(binderSpec.addCode(code.build()).build());
+            binders.put(method, binder);
+        }
+    }
+
+    // MessageReceivedEvent -> MESSAGE_RECEIVED
+    private static String constantPrefixOf(Class<? extends Event> cla)
+    {
+        return constantOf(cla.getSimpleName().replaceAll("Event$", ""));
+    }
+
+    // onMessage -> ON_MESSAGE
+    private static String constantOf(String name)
+    {
+        return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+    }
+
+    // Encoded tables hold arbitrary chars, including lone surrogates that
+    // can't be written to a source file, so everything is escaped.
+    private static CodeBlock literal(String value)
+    {
+        List<CodeBlock> chunks = new ArrayList<>();
+        StringBuilder literal = new StringBuilder("\"");
+        int encoded = 0;
+        for(char c : value.toCharArray())
+        {
+            // The size of the char in modified UTF-8
+            int size = c != 0 && c < 0x80? 1 : c < 0x800? 2 : 3;
+            if(encoded + size > CONSTANT_LIMIT)
+            {
+                chunks.add(CodeBlock.of("$L", literal.append('"')));
+                literal = new StringBuilder("\"");
+                encoded = 0;
+            }
+            encoded += size;
+
+            if(c == '"' || c == '\\')
+                literal.append('\\').append(c);
+            else if(c == '\n')
+                literal.append("\\n");
+            else if(c == '\r')
+                literal.append("\\r");
+            else if(c < 0x80 && Character.isLetterOrDigit(c))
+                literal.append(c);
+            else
+                literal.append(String.format("\\u%04x", (int) c));
+        }
+        chunks.add(CodeBlock.of("$L", literal.append('"')));
+
+        if(chunks.size() == 1)
+            return chunks.get(0);
+
+        // Joined at runtime, as javac would fold a concatenation of constants back into one
+        CodeBlock.Builder joined = CodeBlock.builder().add("$T.join(\"\"", String.class);
+        chunks.forEach(chunk -> joined.add(", $L", chunk));
+        return joined.add(")").build();
+    }
+
+    private boolean isType(TypeMirror type, Class<?> cla)
+    {
+        return types.isSameType(type, elements.getTypeElement(cla.getCanonicalName()).asType());
+    }
+
+    private void addKeywordMatchers(TypeSpec.Builder builder)
+    {
+        eventMap.forEach((cla, methods) -> {
+            KeywordMatcherBuilder matcher = null;
+            int set = 0;
+            for(Element method : methods)
+            {
+                Contains contains = method.getAnnotation(Contains.class);
+                if(contains == null)
+                    continue;
 
-        return builder.build();
+                if(matcher == null)
+                    matcher = new KeywordMatcherBuilder();
+
+                for(String keyword : contains.value())
+                    matcher.add(keyword, set);
+                set++;
+            }
+
+            if(matcher == null)
+                return;
+
+            String field = constantPrefixOf(cla) + KEYWORDS_SUFFIX;
+            String[] encoded = matcher.build();
+
+            builder.addField(FieldSpec.builder(KeywordMatcher.class, field, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                                      .initializer("new $T($L, $L, $L, $L, $L)", KeywordMatcher.class, literal(encoded[0]),
+                                          literal(encoded[1]), literal(encoded[2]), literal(encoded[3]), literal(encoded[4]))
+                                      .build());
+            matchers.put(cla, field);
+        });
+    }
+
+    private void addGuards(TypeSpec.Builder builder)
+    {
+        Map<String, String> guildSets = new HashMap<>(); // Methods with the same guilds share a field
+        eventMap.forEach((cla, methods) -> {
+            TypeElement event = elements.getTypeElement(cla.getCanonicalName());
+            for(Element method : methods)
+            {
+                List<CodeBlock> conditions = new ArrayList<>();
+
+                if(method.getAnnotation(IgnoreBots.class) != null)
+                {
+                    String accessor = accessorOf(event, "getAuthor", "getUser");
+                    if(accessor == null)
+                        throw new IllegalStateException(method.getSimpleName()+" ignores bots, but "+
+                                                        cla.getSimpleName()+" has no getAuthor() or getUser()!");
+                    conditions.add(CodeBlock.of("!e.$N().isBot()", accessor));
+                }
+
+                ChannelTypes channelTypes = method.getAnnotation(ChannelTypes.class);
+                if(channelTypes != null)
+                {
+                    CodeBlock channelType = channelTypeOf(event);
+                    if(channelType == null)
+                        throw new IllegalStateException(method.getSimpleName()+" is limited to channel types, but "+
+                                                        cla.getSimpleName()+" has no getChannelType()!");
+
+                    ChannelType[] values = channelTypes.value();
+                    if(values.length == 0)
+                        throw new IllegalStateException(method.getSimpleName()+" is limited to no channel types!");
+
+                    CodeBlock.Builder condition = CodeBlock.builder();
+                    for(int i = 0; i < values.length; i++)
+                        condition.add(i == 0? "$L == $T.$L" : " || $L == $T.$L", channelType, ChannelType.class, values[i]);
+                    conditions.add(values.length == 1? condition.build() : CodeBlock.of("($L)", condition.build()));
+                }
+
+                Guilds guilds = method.getAnnotation(Guilds.class);
+                if(guilds != null)
+                {
+                    if(accessorOf(event, "getGuild") == null)
+                        throw new IllegalStateException(method.getSimpleName()+" is limited to guilds, but "+
+                                                        cla.getSimpleName()+" has no getGuild()!");
+
+                    long[] ids = guilds.value().clone();
+                    if(ids.length == 0)
+                        throw new IllegalStateException(method.getSimpleName()+" is limited to no guilds!");
+                    Arrays.sort(ids);
+
+                    String field = guildSets.computeIfAbsent(Arrays.toString(ids), key -> {
+                        String name = constantOf(method.getSimpleName().toString()) + GUILDS_SUFFIX;
+                        for(int i = 2; fieldNames.contains(name); i++)
+                            name = constantOf(method.getSimpleName().toString()) + GUILDS_SUFFIX + i;
+                        fieldNames.add(name);
+
+                        CodeBlock.Builder init = CodeBlock.builder().add("{");
+                        for(int i = 0; i < ids.length; i++)
+                            init.add(i == 0? "$LL" : ", $LL", ids[i]);
+                        builder.addField(FieldSpec.builder(long[].class, name, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                                                  .initializer(init.add("}").build())
+                                                  .build());
+                        return name;
+                    });
+
+                    conditions.add(CodeBlock.of("e.getGuild() != null && $T.binarySearch($L, e.getGuild().getIdLong()) >= 0",
+                        Arrays.class, field));
+                }
+
+                if(!conditions.isEmpty())
+                    guards.put(method, conditions);
+            }
+        });
+    }
+
+    private void addSamplers(TypeSpec.Builder builder)
+    {
+        for(Element method : handlers)
+        {
+            Sample sample = method.getAnnotation(Sample.class);
+            if(sample == null)
+                continue;
+
+            boolean rate = sample.rate() != 1.0;
+            boolean everyN = sample.everyN() != 1;
+
+            if(rate && everyN)
+                throw new IllegalStateException("@Sample on "+method.getSimpleName()+" cannot have both a rate and everyN!");
+            if(rate && !(sample.rate() > 0 && sample.rate() < 1))
+                throw new IllegalStateException("@Sample on "+method.getSimpleName()+" must have a rate between 0 and 1!");
+            if(everyN && sample.everyN() < 1)
+                throw new IllegalStateException("@Sample on "+method.getSimpleName()+" must have an everyN of at least 1!");
+
+            // Sampling everything is the same as not sampling
+            if(!rate && !everyN)
+                continue;
+
+            String field = fieldName(method, "Sampler");
+            CodeBlock sampler = rate?
+                CodeBlock.of("$T.ofRate($L)", Sampler.class, sample.rate()) :
+                CodeBlock.of("$T.everyN($L)", Sampler.class, sample.everyN());
+
+            builder.addField(FieldSpec.builder(Sampler.class, field, Modifier.PRIVATE, Modifier.FINAL)
+                                      .initializer(sampler)
+                                      .build());
+            samplers.put(method, field);
+        }
+    }
+
+    private void addThrottles(TypeSpec.Builder builder)
+    {
+        eventMap.forEach((cla, methods) -> {
+            for(Element method : methods)
+            {
+                Throttle throttle = method.getAnnotation(Throttle.class);
+                if(throttle == null)
+                    continue;
+
+                if(throttle.permits() < 1 || throttle.capacity() < 1)
+                    throw error(method, "@Throttle on "+method.getSimpleName()+" must have at least 1 " +
+                                        "permit and a capacity of at least 1!");
+
+                TypeElement event = elements.getTypeElement(cla.getCanonicalName());
+                String accessor = accessorOf(event, throttle.per().getAccessors());
+                if(accessor == null)
+                    throw error(method, method.getSimpleName()+" is throttled per "+throttle.per()+", but "+
+                                        cla.getSimpleName()+" has no "+throttle.per().getAccessors()[0]+"()!");
+
+                String invalid = "@Throttle on "+method.getSimpleName()+" has an invalid period";
+                long period = durationOf(method, throttle.period(), invalid);
+
+                // TokenBuckets would only reject it when the listener is created
+                if(period < 1)
+                    throw error(method, invalid+", it must be at least 1ms: '"+throttle.period()+"'!");
+
+                String field = fieldName(method, "Throttle");
+                builder.addField(FieldSpec.builder(TokenBuckets.class, field, Modifier.PRIVATE, Modifier.FINAL)
+                                          .initializer("new $T($L, $LL, $L)", TokenBuckets.class,
+                                              throttle.permits(), period, throttle.capacity())
+                                          .build());
+
+                throttles.put(method, CodeBlock.of("$L.tryAcquire($T.of(e.$N()))", field, Keys.class, accessor));
+            }
+        });
+    }
+
+    @Nullable
+    private String accessorOf(TypeElement event, String... accessors)
+    {
+        for(String accessor : accessors)
+        {
+            if(ElementUtils.findAccessor(event, elements, accessor) != null)
+                return accessor;
+        }
+        return null;
+    }
+
+    @Nullable
+    private CodeBlock channelTypeOf(TypeElement event)
+    {
+        if(accessorOf(event, "getChannelType") != null)
+            return CodeBlock.of("e.getChannelType()");
+
+        ExecutableElement channel = ElementUtils.findAccessor(event, elements, "getChannel");
+        if(channel != null && channel.getReturnType().getKind() == TypeKind.DECLARED &&
+           accessorOf((TypeElement) types.asElement(channel.getReturnType()), "getType") != null)
+            return CodeBlock.of("e.getChannel().getType()");
+
+        return null;
+    }
+
+    private void addQueues(TypeSpec.Builder builder)
+    {
+        List<String> queues = new ArrayList<>();
+        if(fieldNames.contains(EXECUTOR_FIELD))
+            queues.add(EXECUTOR_FIELD);
+        queues.addAll(new LinkedHashSet<>(bulkheads.values()));
+
+        if(queues.isEmpty())
+            return;
+
+        CodeBlock.Builder initializer = CodeBlock.builder();
+        for(String queue : queues)
+            initializer.addStatement("$L.addQueue($S, $L::getQueueDepth)", STATS_FIELD, queue, queue);
+
+        for(String queue : queues)
+        {
+            if(queue.equals(EXECUTOR_FIELD) && autoListener.execution() == AutoListener.Execution.RING_BUFFER)
+                initializer.addStatement("$L.addRejections($S, $L::getDropped)", STATS_FIELD, queue, queue);
+            else
+                initializer.addStatement("$L.addRejections($S, $L::getRejected)", STATS_FIELD, queue, queue);
+        }
+
+        builder.addInitializerBlock(initializer.build());
+    }
+
+    private void addAllocations(TypeSpec.Builder builder, String className)
+    {
+        CodeBlock.Builder names = CodeBlock.builder();
+        for(Element handler : handlers)
+            names.add(", $S", handlerName(handler));
+
+        builder.addField(FieldSpec.builder(AllocationStats.class, ALLOCATIONS_FIELD, Modifier.PRIVATE, Modifier.FINAL)
+                                  .initializer("new $T($S, $L$L)", AllocationStats.class, className,
+                                      autoListener.allocationSampling(), names.build())
+                                  .build());
+        fieldNames.add(ALLOCATIONS_FIELD);
+
+        builder.addMethod(MethodSpec.methodBuilder("getAllocations")
+                                    .addModifiers(Modifier.PUBLIC)
+                                    .returns(AllocationStats.class)
+                                    .addStatement("return $L", ALLOCATIONS_FIELD)
+                                    .build());
+    }
+
+    private void addWatchdog(TypeSpec.Builder builder, String className)
+    {
+        // Methods without a budget are never reported
+        long defaultBudget = autoListener.watchdog().isEmpty()? Long.MAX_VALUE :
+            durationOf(original, autoListener.watchdog(), "@AutoListener on "+original.getSimpleName()+" has an invalid watchdog");
+
+        CodeBlock.Builder names = CodeBlock.builder();
+        CodeBlock.Builder budgets = CodeBlock.builder();
+        for(int i = 0; i < handlers.size(); i++)
+        {
+            Element handler = handlers.get(i);
+            Budget budget = handler.getAnnotation(Budget.class);
+            long millis = budget == null? defaultBudget :
+                durationOf(handler, budget.value(), "@Budget on "+handler.getSimpleName()+" is invalid");
+
+            names.add(i == 0? "$S" : ", $S", handlerName(handlers.get(i)));
+            budgets.add(i == 0? "$LL" : ", $LL", millis);
+        }
+
+        builder.addField(FieldSpec.builder(Watchdog.class, WATCHDOG_FIELD, Modifier.PRIVATE, Modifier.FINAL)
+                                  .initializer("new $T($S, new $T[] {$L}, new long[] {$L})",
+                                      Watchdog.class, className, String.class, names.build(), budgets.build())
+                                  .build());
+        fieldNames.add(WATCHDOG_FIELD);
+        shutdowns.add(WATCHDOG_FIELD);
+
+        builder.addMethod(MethodSpec.methodBuilder("getWatchdog")
+                                    .addModifiers(Modifier.PUBLIC)
+                                    .returns(Watchdog.class)
+                                    .addStatement("return $L", WATCHDOG_FIELD)
+                                    .build());
+    }
+
+    private void addFlightRecorderEvent(TypeSpec.Builder builder, String className)
+    {
+        CodeBlock.Builder names = CodeBlock.builder();
+        CodeBlock.Builder eventTypes = CodeBlock.builder();
+        for(int i = 0; i < handlers.size(); i++)
+        {
+            names.add(i == 0? "$S" : ", $S", handlerName(handlers.get(i)));
+            eventTypes.add(i == 0? "$T.class" : ", $T.class", eventTypeOf(handlers.get(i)));
+        }
+
+        builder.addField(FieldSpec.builder(String[].class, HANDLER_NAMES_FIELD, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                                  .initializer("{$L}", names.build())
+                                  .build());
+        TypeName wildcardClass = ParameterizedTypeName.get(ClassName.get(Class.class), WildcardTypeName.subtypeOf(Object.class));
+        builder.addField(FieldSpec.builder(ArrayTypeName.of(wildcardClass), HANDLER_TYPES_FIELD,
+                                           Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                                  .initializer("{$L}", eventTypes.build())
+                                  .build());
+
+        // jdk.jfr is not part of Java 8, so it is referenced by name only and
+        // the processor itself never needs it on the classpath.
+        ClassName label = ClassName.get("jdk.jfr", "Label");
+
+        TypeSpec dispatchEvent = TypeSpec.classBuilder(JFR_EVENT)
+            .addModifiers(Modifier.STATIC, Modifier.FINAL)
+            .superclass(ClassName.get("jdk.jfr", "Event"))
+            .addAnnotation(AnnotationSpec.builder(ClassName.get("jdk.jfr", "Name"))
+                                         .addMember("value", "$S", getPackageName() + className + ".Dispatch").build())
+            .addAnnotation(AnnotationSpec.builder(label)
+                                         .addMember("value", "$S", className + " Dispatch").build())
+            .addAnnotation(AnnotationSpec.builder(ClassName.get("jdk.jfr", "Category"))
+                                         .addMember("value", "{$S, $S}", "JDA", "Auto-Listener").build())
+            .addAnnotation(AnnotationSpec.builder(ClassName.get("jdk.jfr", "Description"))
+                                         .addMember("value", "$S", "Invocation of a listener method by " + className).build())
+            .addField(FieldSpec.builder(wildcardClass, "eventType")
+                               .addAnnotation(AnnotationSpec.builder(label).addMember("value", "$S", "Event Type").build())
+                               .build())
+            .addField(FieldSpec.builder(String.class, "handler")
+                               .addAnnotation(AnnotationSpec.builder(label).addMember("value", "$S", "Handler").build())
+                               .build())
+            .build();
+
+        builder.addType(dispatchEvent);
+    }
+
+    private String getPackageName()
+    {
+        String packageName = elements.getPackageOf(original).getQualifiedName().toString();
+        return packageName.isEmpty()? "" : packageName + ".";
+    }
+
+    private Class<? extends Event> eventTypeOf(Element handler)
+    {
+        for(Map.Entry<Class<? extends Event>, List<Element>> entry : eventMap.entrySet())
+        {
+            if(entry.getValue().contains(handler))
+                return entry.getKey();
+        }
+        throw new IllegalStateException("No event type registered for "+handler.getSimpleName());
+    }
+
+    private static String handlerName(Element handler)
+    {
+        StringJoiner params = new StringJoiner(", ", handler.getSimpleName() + "(", ")");
+
+        // Strip the packages off of the parameter types
+        for(VariableElement param : ((ExecutableElement) handler).getParameters())
+            params.add(get(param.asType()).toString().replaceAll("[\\w$]+\\.", ""));
+
+        return params.toString();
+    }
+
+    private long durationOf(Element element, String duration, String message)
+    {
+        try {
+            return Durations.toMillis(duration);
+        } catch(IllegalArgumentException e) {
+            throw error(element, message+": '"+duration+"'!");
+        }
+    }
+
+    // Reports an error on the element that caused it. The returned exception stops
+    // generating the listener, without the error being reported a second time.
+    private ReportedException error(Element element, String message)
+    {
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+        return new ReportedException(message);
+    }
+
+    // Generated methods would duplicate, override or hide a method of the original with
+    // the same signature, which either fails to compile or silently changes its behavior.
+    private TypeSpec checkConflicts(TypeSpec spec, Collection<MethodSpec> copies)
+    {
+        TypeElement object = elements.getTypeElement(Object.class.getCanonicalName());
+        List<ExecutableElement> methods = ElementFilter.methodsIn(elements.getAllMembers(original));
+
+        // Every conflict is reported before failing
+        ReportedException conflict = null;
+        for(MethodSpec generated : spec.methodSpecs)
+        {
+            if(generated.isConstructor() || copies.contains(generated) ||
+               (generated.name.equals("onEvent") && generated.parameters.size() == 1))
+                continue;
+
+            for(ExecutableElement method : methods)
+            {
+                if(method.getModifiers().contains(Modifier.PRIVATE) || method.getEnclosingElement().equals(object))
+                    continue;
+
+                if(method.getSimpleName().contentEquals(generated.name) && isSameErasure(method, generated))
+                    conflict = error(method, method+" conflicts with the method of the same name generated in "+spec.name+"!");
+            }
+        }
+
+        if(conflict != null)
+            throw conflict;
+
+        return spec;
+    }
+
+    private boolean isSameErasure(ExecutableElement method, MethodSpec generated)
+    {
+        List<? extends VariableElement> params = method.getParameters();
+        if(params.size() != generated.parameters.size())
+            return false;
+
+        for(int i = 0; i < params.size(); i++)
+        {
+            if(!get(types.erasure(params.get(i).asType())).equals(erasure(generated.parameters.get(i).type)))
+                return false;
+        }
+
+        return true;
+    }
+
+    private static TypeName erasure(TypeName type)
+    {
+        if(type instanceof ParameterizedTypeName)
+            return ((ParameterizedTypeName) type).rawType;
+        if(type instanceof ArrayTypeName)
+            return ArrayTypeName.of(erasure(((ArrayTypeName) type).componentType));
+        return type;
+    }
+
+    private boolean isInstrumented()
+    {
+        return autoListener.metrics() || autoListener.flightRecorder() || isWatched() ||
+               autoListener.allocationSampling() > 0 || autoListener.trackReplies();
+    }
+
+    private boolean hasStats()
+    {
+        return autoListener.metrics() || autoListener.trackReplies();
+    }
+
+    private boolean isWatched()
+    {
+        return !autoListener.watchdog().isEmpty() || handlers.stream().anyMatch(h -> h.getAnnotation(Budget.class) != null);
+    }
+
+    private boolean usesInvokeHandler()
+    {
+        return isInstrumented() || !batchers.isEmpty() || !coalescers.isEmpty() ||
+               autoListener.execution() == AutoListener.Execution.RING_BUFFER;
+    }
+
+    private String fieldName(Element method, String suffix)
+    {
+        // Overloads get a numbered suffix
+        String field = method.getSimpleName() + suffix;
+        for(int i = 2; fieldNames.contains(field); i++)
+            field = method.getSimpleName() + suffix + i;
+
+        fieldNames.add(field);
+        return field;
+    }
+
+    private void addShutdown(TypeSpec.Builder builder)
+    {
+        MethodSpec.Builder shutdown = MethodSpec.methodBuilder("shutdown").addModifiers(Modifier.PUBLIC);
+
+        for(String field : shutdowns)
+            shutdown.addStatement("$L.shutdown()", field);
+
+        builder.addMethod(shutdown.build());
+    }
+
+    private void addEventProfile(TypeSpec.Builder builder, CodeBlock.Builder block)
+    {
+        builder.addField(FieldSpec.builder(EventProfile.class, PROFILE_FIELD,
+                                           Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                                  .initializer("new $T()", EventProfile.class).build());
+
+        builder.addMethod(MethodSpec.methodBuilder("getEventProfile")
+                                    .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                                    .returns(EventProfile.class)
+                                    .addStatement("return $L", PROFILE_FIELD)
+                                    .build());
+
+        block.addStatement("$L.record(event.getClass())", PROFILE_FIELD);
+    }
+
+    private void addInstanceofDispatch(TypeSpec.Builder builder, CodeBlock.Builder block)
+    {
+        // Each event only enters the first branch it's an instance of, which
+        // also calls the handlers of every handled supertype of the branch.
+        Map<Class<? extends Event>, CodeBlock> code = new LinkedHashMap<>();
+        for(Class<? extends Event> cla : branchOrder())
+        {
+            CodeBlock.Builder branch = CodeBlock.builder();
+            addBranchCalls(branch, cla);
+            code.put(cla, branch.build());
+        }
+
+        if(code.isEmpty())
+            return;
+
+        int overhead = sizeOf(block.build());
+        for(Class<? extends Event> cla : code.keySet())
+            overhead += sizeOf(CodeBlock.of("} else if(event instanceof $T) {\n$T e = ($T) event;\n", cla, cla, cla));
+
+        Set<Class<? extends Event>> outlined = outlineBranches(builder, code, overhead);
+
+        int i = 0;
+        for(Map.Entry<Class<? extends Event>, CodeBlock> branch : code.entrySet())
+        {
+            Class<? extends Event> cla = branch.getKey();
+            block.add(i++ == 0? "if(event instanceof $T) {\n" : "} else if(event instanceof $T) {\n", cla);
+            block.indent();
+
+            if(!outlined.contains(cla))
+                block.addStatement("$T e = ($T) event", cla, cla);
+
+            block.add(branch.getValue());
+            block.unindent();
+        }
+        block.add("}\n");
+    }
+
+    // Moves the largest branches into helper methods of their own, until the method they're
+    // dispatched from is small enough. Outlined branches are replaced with the calls to their
+    // helpers. A branch only takes more than one helper when its handlers alone are too large
+    // for a single method, otherwise this never adds more than one call to an event.
+    private Set<Class<? extends Event>> outlineBranches(TypeSpec.Builder builder,
+                                                       Map<Class<? extends Event>, CodeBlock> code, int overhead)
+    {
+        Set<Class<? extends Event>> outlined = new HashSet<>();
+        int size = overhead + sizeOf(code.values());
+        if(size <= HUGE_METHOD_LIMIT)
+            return outlined;
+
+        List<Class<? extends Event>> largest = new ArrayList<>(code.keySet());
+        largest.sort(Comparator.comparingInt((Class<? extends Event> cla) -> sizeOf(code.get(cla))).reversed());
+
+        for(Class<? extends Event> cla : largest)
+        {
+            if(size <= HUGE_METHOD_LIMIT)
+                break;
+
+            CodeBlock.Builder calls = CodeBlock.builder();
+            List<CodeBlock> parts = sizeOf(code.get(cla)) <= HUGE_METHOD_LIMIT?
+                Collections.singletonList(code.get(cla)) : splitBranch(cla);
+            for(CodeBlock part : parts)
+            {
+                String name = uniqueName("dispatch" + cla.getSimpleName());
+                MethodSpec.Builder helper = MethodSpec.methodBuilder(name)
+                                                      .addModifiers(Modifier.PRIVATE)
+                                                      .addParameter(cla, "e");
+                if(autoListener.trackReplies())
+                {
+                    helper.addParameter(long.class, RECEIVED_VAR);
+                    calls.addStatement("$N(($T) event, $L)", name, cla, RECEIVED_VAR);
+                }
+                else
+                {
+                    calls.addStatement("$N(($T) event)", name, cla);
+                }
+
+                builder.addMethod(helper.addCode(part).build());
+            }
+
+            CodeBlock call = calls.build();
+            size += sizeOf(call) - sizeOf(code.get(cla));
+            code.put(cla, call);
+            outlined.add(cla);
+        }
+        return outlined;
+    }
+
+    // Splits the handler calls of a branch into parts that each fit in a method. The handlers
+    // of a type are only split up to the first one that shares a context, or matches keywords
+    // or commands, as those are matched once for all of them. Handlers stay in order, and each
+    // part checks the guards of its own handlers.
+    private List<CodeBlock> splitBranch(Class<? extends Event> type)
+    {
+        List<CodeBlock> parts = new ArrayList<>();
+        CodeBlock.Builder part = CodeBlock.builder();
+        int size = 0;
+
+        for(Map.Entry<Class<? extends Event>, List<Element>> entry : eventMap.entrySet())
+        {
+            Class<? extends Event> cla = entry.getKey();
+            List<Element> methods = entry.getValue();
+            if(!cla.isAssignableFrom(type))
+                continue;
+
+            int splittable = 0;
+            while(splittable < methods.size() && isSplittable(methods.get(splittable)))
+                splittable++;
+
+            List<Element> group = new ArrayList<>();
+            for(int i = 0; i <= splittable; i++)
+            {
+                List<Element> next = i < splittable? Collections.singletonList(methods.get(i)) :
+                    methods.subList(splittable, methods.size());
+                if(next.isEmpty())
+                    continue;
+
+                List<Element> grown = new ArrayList<>(group);
+                grown.addAll(next);
+                if(size + sizeOf(handlerCallsOf(cla, grown)) <= HUGE_METHOD_LIMIT)
+                {
+                    group = grown;
+                    continue;
+                }
+
+                // Whatever doesn't fit starts the next part
+                if(!group.isEmpty())
+                    part.add(handlerCallsOf(cla, group));
+                if(!group.isEmpty() || size > 0)
+                {
+                    parts.add(part.build());
+                    part = CodeBlock.builder();
+                    size = 0;
+                }
+                group = new ArrayList<>(next);
+
+                if(sizeOf(handlerCallsOf(cla, group)) > HUGE_METHOD_LIMIT)
+                {
+                    messager.printMessage(Diagnostic.Kind.WARNING, "Some handlers of "+cla.getSimpleName()+" can't " +
+                        "be split into methods small enough for HotSpot to compile!", original);
+                }
+            }
+
+            if(!group.isEmpty())
+            {
+                CodeBlock calls = handlerCallsOf(cla, group);
+                part.add(calls);
+                size += sizeOf(calls);
+            }
+        }
+
+        parts.add(part.build());
+        return parts;
+    }
+
+    private boolean isSplittable(Element method)
+    {
+        return !hasContext(method) && method.getAnnotation(Command.class) == null
+               && method.getAnnotation(Contains.class) == null;
+    }
+
+    private CodeBlock handlerCallsOf(Class<? extends Event> cla, List<Element> methods)
+    {
+        CodeBlock.Builder calls = CodeBlock.builder();
+        addHandlerCalls(calls, cla, methods);
+        return calls.build();
+    }
+
+    private String uniqueName(String base)
+    {
+        String name = base;
+        for(int i = 2; fieldNames.contains(name); i++)
+            name = base + i;
+        fieldNames.add(name);
+        return name;
+    }
+
+    // Subtypes always come before their supertypes, so the first branch an event is an
+    // instance of is the most specific one. Otherwise the hottest types are checked first,
+    // and types without a recorded count keep the order they were declared in.
+    private List<Class<? extends Event>> branchOrder()
+    {
+        List<Class<? extends Event>> remaining = new ArrayList<>(eventMap.keySet());
+        if(!eventProfile.isEmpty())
+            remaining.sort(Comparator.comparingLong(this::frequencyOf).reversed());
+
+        List<Class<? extends Event>> order = new ArrayList<>();
+        while(!remaining.isEmpty())
+        {
+            // The hottest type goes next, unless it has subtypes that have to be checked before it
+            Class<? extends Event> next = remaining.get(0);
+            for(Class<? extends Event> cla : remaining)
+            {
+                if(cla != next && next.isAssignableFrom(cla))
+                    next = cla;
+            }
+
+            order.add(next);
+            remaining.remove(next);
+        }
+        return order;
+    }
+
+    // Flattens in the handlers of every handled supertype, in the order they were declared in
+    private void addBranchCalls(CodeBlock.Builder branch, Class<? extends Event> type)
+    {
+        eventMap.forEach((cla, methods) -> {
+            if(!cla.isAssignableFrom(type))
+                return;
+
+            addHandlerCalls(branch, cla, methods);
+        });
+    }
+
+    private void addTableDispatch(TypeSpec.Builder builder, CodeBlock.Builder block)
+    {
+        // Nothing to dispatch to
+        if(eventMap.isEmpty())
+            return;
+
+        List<Class<? extends Event>> slots = slotOrder();
+        addTypesField(builder, slots);
+        addSlotsField(builder);
+        addSlotSwitch(builder, block, slots, CodeBlock.of("$L.get(event.getClass())", SLOTS_FIELD));
+    }
+
+    // Order the handled types so that subtypes always come before their
+    // supertypes, that way the first assignable type found at runtime is
+    // always the most specific one.
+    private List<Class<? extends Event>> slotOrder()
+    {
+        List<Class<? extends Event>> slots = new ArrayList<>(eventMap.keySet());
+        slots.sort(Comparator.comparingInt(AutoListenerGenerator::depthOf).reversed());
+        return slots;
+    }
+
+    private void addTypesField(TypeSpec.Builder builder, List<Class<? extends Event>> slots)
+    {
+        CodeBlock.Builder typesInit = CodeBlock.builder().add("{");
+        for(int i = 0; i < slots.size(); i++)
+        {
+            typesInit.add("$T.class", slots.get(i));
+
+            if(i < slots.size() - 1)
+                typesInit.add(", ");
+        }
+        typesInit.add("}");
+
+        TypeName classArray = ArrayTypeName.of(ParameterizedTypeName.get(ClassName.get(Class.class),
+            WildcardTypeName.subtypeOf(Object.class)));
+        builder.addField(FieldSpec.builder(classArray, TYPES_FIELD, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                                  .initializer(typesInit.build()).build());
+    }
+
+    private void addSlotsField(TypeSpec.Builder builder)
+    {
+        TypeSpec classValue = TypeSpec.anonymousClassBuilder("")
+            .superclass(ParameterizedTypeName.get(ClassValue.class, Integer.class))
+            .addMethod(MethodSpec.methodBuilder("computeValue")
+                                 .addAnnotation(Override.class)
+                                 .addModifiers(Modifier.PROTECTED)
+                                 .returns(Integer.class)
+                                 .addParameter(ParameterizedTypeName.get(ClassName.get(Class.class),
+                                     WildcardTypeName.subtypeOf(Object.class)), "type")
+                                 .addCode(slotSearch())
+                                 .build())
+            .build();
+
+        builder.addField(FieldSpec.builder(ParameterizedTypeName.get(ClassValue.class, Integer.class), SLOTS_FIELD,
+                                           Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                                  .initializer("$L", classValue).build());
+    }
+
+    // Slot 0 is reserved for event types that have no handlers.
+    private static CodeBlock slotSearch()
+    {
+        return CodeBlock.builder()
+                        .beginControlFlow("for(int i = 0; i < $L.length; i++)", TYPES_FIELD)
+                        .beginControlFlow("if($L[i].isAssignableFrom(type))", TYPES_FIELD)
+                        .addStatement("return i + 1")
+                        .endControlFlow()
+                        .endControlFlow()
+                        .addStatement("return 0")
+                        .build();
+    }
+
+    private void addSlotSwitch(TypeSpec.Builder builder, CodeBlock.Builder block,
+                               List<Class<? extends Event>> slots, CodeBlock selector)
+    {
+        Map<Class<? extends Event>, CodeBlock> code = new LinkedHashMap<>();
+        for(Class<? extends Event> slot : slots)
+        {
+            CodeBlock.Builder branch = CodeBlock.builder();
+            addBranchCalls(branch, slot);
+            code.put(slot, branch.build());
+        }
+
+        int overhead = sizeOf(block.build()) + sizeOf(CodeBlock.of("switch($L) {\n}\n", selector));
+        for(int i = 0; i < slots.size(); i++)
+        {
+            overhead += sizeOf(CodeBlock.of("case $L: {\n$T e = ($T) event;\nbreak;\n}\n",
+                i + 1, slots.get(i), slots.get(i)));
+        }
+
+        Set<Class<? extends Event>> outlined = outlineBranches(builder, code, overhead);
+
+        block.beginControlFlow("switch($L)", selector);
+        for(int i = 0; i < slots.size(); i++)
+        {
+            Class<? extends Event> slot = slots.get(i);
+
+            if(outlined.contains(slot))
+            {
+                block.add("case $L:\n", i + 1).indent();
+                block.add(code.get(slot));
+            }
+            else
+            {
+                block.add("case $L: {\n", i + 1).indent();
+                block.addStatement("$T e = ($T) event", slot, slot);
+                block.add(code.get(slot));
+            }
+
+            block.addStatement("break");
+            block.unindent();
+
+            if(!outlined.contains(slot))
+                block.add("}\n");
+        }
+        block.endControlFlow();
+    }
+
+    // Overestimates the bytecode the code compiles to, by counting each name, literal and
+    // operator as 3 bytes. That's the size of an instruction with a constant pool index, and
+    // wider instructions, like calls through interfaces or switch cases, take several tokens.
+    // Packages qualifying a type only name a constant, so they aren't counted.
+    private static int sizeOf(CodeBlock code)
+    {
+        String source = QUALIFIER.matcher(code.toString()).replaceAll("");
+        int tokens = 0;
+        for(int i = 0; i < source.length(); i++)
+        {
+            char c = source.charAt(i);
+            if(Character.isWhitespace(c))
+                continue;
+
+            tokens++;
+            if(c == '"' || c == '\'')
+            {
+                for(i++; i < source.length() && source.charAt(i) != c; i++)
+                {
+                    if(source.charAt(i) == '\\')
+                        i++;
+                }
+            }
+            else if(Character.isJavaIdentifierPart(c))
+            {
+                while(i + 1 < source.length() && Character.isJavaIdentifierPart(source.charAt(i + 1)))
+                    i++;
+            }
+        }
+        return tokens * 3;
+    }
+
+    private static int sizeOf(Collection<CodeBlock> code)
+    {
+        int size = 0;
+        for(CodeBlock block : code)
+            size += sizeOf(block);
+        return size;
+    }
+
+    private void addHandlerCalls(CodeBlock.Builder block, Class<? extends Event> cla, List<Element> methods)
+    {
+        String type = cla.getSimpleName().replaceAll("Event$", "");
+        String prefix = type.isEmpty()? "event" : Character.toLowerCase(type.charAt(0)) + type.substring(1);
+
+        // Guards every method has are checked once around all of them, the
+        // rest are each checked once up front and shared between methods.
+        Map<String, CodeBlock> conditions = new LinkedHashMap<>();
+        for(Element method : methods)
+        {
+            for(CodeBlock condition : guards.getOrDefault(method, Collections.emptyList()))
+                conditions.putIfAbsent(condition.toString(), condition);
+        }
+
+        List<CodeBlock> common = new ArrayList<>();
+        Map<String, String> locals = new HashMap<>();
+        for(Map.Entry<String, CodeBlock> condition : conditions.entrySet())
+        {
+            if(methods.stream().allMatch(method -> guards.getOrDefault(method, Collections.emptyList()).stream()
+                                                         .anyMatch(guard -> guard.toString().equals(condition.getKey()))))
+            {
+                common.add(condition.getValue());
+                locals.put(condition.getKey(), null);
+            }
+        }
+
+        if(!common.isEmpty())
+            block.beginControlFlow("if($L)", joined(common));
+
+        for(Map.Entry<String, CodeBlock> condition : conditions.entrySet())
+        {
+            if(locals.containsKey(condition.getKey()))
+                continue;
+
+            String local = prefix + "Guard" + (locals.size() - common.size());
+            block.addStatement("boolean $L = $L", local, condition.getValue());
+            locals.put(condition.getKey(), local);
+        }
+
+        // One context is shared by every method of the event
+        String context = null;
+        CodeBlock content = CodeBlock.of("e.getMessage().getContentRaw()");
+        if(methods.stream().anyMatch(this::hasContext))
+        {
+            context = prefix + "Context";
+            content = CodeBlock.of("$L.getContent()", context);
+            block.addStatement("$T $L = new $T(e, e.getMessage())", MessageContext.class, context, MessageContext.class);
+        }
+
+        List<Element> commands = new ArrayList<>();
+        List<Element> keywords = new ArrayList<>();
+        for(Element method : methods)
+        {
+            if(method.getAnnotation(Command.class) != null)
+                commands.add(method);
+            else if(method.getAnnotation(Contains.class) != null)
+                keywords.add(method);
+            else
+                addGuardedCall(block, method, null, locals, context);
+        }
+
+        if(!keywords.isEmpty())
+        {
+            // Each method is a bit in the mask, in the order they were added to the matcher
+            String matched = prefix + "Keywords";
+            block.addStatement("long $L = $L.match($L)", matched, matchers.get(cla), content);
+            for(int i = 0; i < keywords.size(); i++)
+                addGuardedCall(block, keywords.get(i), CodeBlock.of("($L & $LL) != 0", matched, 1L << i), locals, context);
+        }
+
+        if(!commands.isEmpty())
+        {
+            // Cases are numbered in the same order the keys were added to the trie
+            block.beginControlFlow("switch($L.match($L))", routers.get(cla), content);
+            int key = 0;
+            for(Element command : commands)
+            {
+                for(String ignored : command.getAnnotation(Command.class).value())
+                    block.add("case $L:\n", key++);
+
+                block.indent();
+                addGuardedCall(block, command, null, locals, context);
+                block.addStatement("break");
+                block.unindent();
+            }
+            block.endControlFlow();
+        }
+
+        if(!common.isEmpty())
+            block.endControlFlow();
+    }
+
+    private void addGuardedCall(CodeBlock.Builder block, Element method, @Nullable CodeBlock condition,
+                                Map<String, String> locals, @Nullable String context)
+    {
+        List<CodeBlock> checks = new ArrayList<>();
+        if(condition != null)
+            checks.add(condition);
+
+        // Guards checked around every method have no local
+        for(CodeBlock guard : guards.getOrDefault(method, Collections.emptyList()))
+        {
+            String local = locals.get(guard.toString());
+            if(local != null)
+                checks.add(CodeBlock.of("$L", local));
+        }
+
+        // Sampled last, so only events passing every other check are counted
+        if(samplers.containsKey(method))
+            checks.add(CodeBlock.of("$L.sample()", samplers.get(method)));
+
+        // Permits are only taken by events that would otherwise be handled
+        if(throttles.containsKey(method))
+            checks.add(throttles.get(method));
+
+        if(checks.isEmpty())
+        {
+            addHandlerCall(block, method, context);
+            return;
+        }
+
+        block.beginControlFlow("if($L)", joined(checks));
+        addHandlerCall(block, method, context);
+        block.endControlFlow();
+    }
+
+    private static CodeBlock joined(List<CodeBlock> conditions)
+    {
+        CodeBlock.Builder joined = CodeBlock.builder();
+        for(int i = 0; i < conditions.size(); i++)
+            joined.add(i == 0? "$L" : " && $L", conditions.get(i));
+        return joined.build();
+    }
+
+    private void addHandlerCall(CodeBlock.Builder block, Element method, @Nullable String context)
+    {
+        // Batched events are only buffered here
+        if(batchers.containsKey(method))
+        {
+            block.addStatement("$L.add(e)", batchers.get(method));
+            return;
+        }
+
+        // Coalesced events are only held here
+        if(coalescers.containsKey(method))
+        {
+            block.addStatement("$L", coalescers.get(method));
+            return;
+        }
+
+        CodeBlock shared = hasContext(method)? CodeBlock.of("$L", context) : null;
+        CodeBlock call = isInstrumented()?
+            invokeCall(method, shared != null && sharesContext()? shared : CodeBlock.of("e"), CodeBlock.of(RECEIVED_VAR)) :
+            callOf(method, CodeBlock.of("e"), shared);
+
+        // Bulkheads take priority over the execution of the listener
+        if(bulkheads.containsKey(method))
+        {
+            block.addStatement("$L.execute(() -> $L)", bulkheads.get(method), call);
+            return;
+        }
+
+        switch(autoListener.execution())
+        {
+            case KEYED:
+                block.addStatement("$L.execute($L, () -> $L)", EXECUTOR_FIELD, keyOf(method), call);
+                break;
+
+            case VIRTUAL:
+                block.addStatement("$L.execute(() -> $L)", EXECUTOR_FIELD, call);
+                break;
+
+            case RING_BUFFER:
+                if(autoListener.trackReplies())
+                    block.addStatement("$L.publish($L, e, $L)", EXECUTOR_FIELD, handlers.indexOf(method), RECEIVED_VAR);
+                else
+                    block.addStatement("$L.publish($L, e)", EXECUTOR_FIELD, handlers.indexOf(method));
+                break;
+
+            default:
+                block.addStatement("$L", call);
+        }
+    }
+
+    private CodeBlock callOf(Element method, CodeBlock event, @Nullable CodeBlock context)
+    {
+        CodeBlock args = context == null? event : CodeBlock.of("$L, $L", event, context);
+        if(binders.containsKey(method))
+            return CodeBlock.of("$N($L)", binders.get(method), args);
+        return CodeBlock.of("$L.$N($L)", receiver(), method.getSimpleName(), args);
+    }
+
+    // Subclasses invoke methods on themselves
+    private String receiver()
+    {
+        return autoListener.generation() == AutoListener.Generation.SUBCLASS? "this" : "instance";
+    }
+
+    private boolean hasContext(Element method)
+    {
+        List<? extends VariableElement> params = ((ExecutableElement) method).getParameters();
+        return params.size() > 1 && isType(params.get(1).asType(), MessageContext.class);
+    }
+
+    // The ring buffer only carries events
+    private boolean sharesContext()
+    {
+        return autoListener.execution() != AutoListener.Execution.RING_BUFFER;
+    }
+
+    private CodeBlock invokeCall(Element method, CodeBlock event, CodeBlock received)
+    {
+        if(autoListener.trackReplies())
+            return CodeBlock.of("$L($L, $L, $L)", INVOKE_METHOD, handlers.indexOf(method), event, received);
+        return CodeBlock.of("$L($L, $L)", INVOKE_METHOD, handlers.indexOf(method), event);
+    }
+
+    private CodeBlock keyOf(Element method)
+    {
+        ExecutableElement executable = (ExecutableElement) method;
+        TypeElement event = (TypeElement) types.asElement(executable.getParameters().get(0).asType());
+        OrderedBy orderedBy = method.getAnnotation(OrderedBy.class);
+
+        // Default to the guild, if there is one
+        Key key = orderedBy == null? Key.GUILD : orderedBy.value();
+
+        String accessor = accessorOf(event, key.getAccessors());
+        if(accessor != null)
+            return CodeBlock.of("$T.of(e.$N())", Keys.class, accessor);
+
+        if(orderedBy != null)
+            throw new IllegalStateException(method.getSimpleName()+" is ordered by "+key+", but "+
+                                            event.getSimpleName()+" has no "+key.getAccessors()[0]+"()!");
+
+        // Everything shares a single order
+        return CodeBlock.of("0L");
+    }
+
+    private long frequencyOf(Class<? extends Event> cla)
+    {
+        long frequency = 0;
+
+        // Events of a subtype also pass the instanceof check for this type
+        for(Map.Entry<String, Long> entry : eventProfile.entrySet())
+        {
+            try {
+                if(cla.isAssignableFrom(Class.forName(entry.getKey())))
+                    frequency += entry.getValue();
+            } catch(ClassNotFoundException ignored) {}
+        }
+
+        return frequency;
+    }
+
+    private static int depthOf(Class<?> clazz)
+    {
+        int depth = 0;
+        for(Class<?> c = clazz.getSuperclass(); c != null; c = c.getSuperclass())
+            depth++;
+        return depth;
+    }
+
+    // Thrown once an error was reported on an element, so processing of the class stops
+    static final class ReportedException extends IllegalStateException
+    {
+        private static final long serialVersionUID = 1L;
+
+        private ReportedException(String message)
+        {
+            super(message);
+        }
     }
 }
@@ -16,20 +16,30 @@
 package me.kgustave.jdagen.autolistener;
 
 import com.google.auto.service.AutoService;
+import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.TypeSpec;
+import me.kgustave.jdagen.autolistener.runtime.MessageContext;
 import me.kgustave.jdagen.commons.ProcessorFrame;
+import me.kgustave.jdagen.commons.utils.ElementUtils;
 import net.dv8tion.jda.core.events.Event;
 
 import javax.annotation.processing.*;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.ElementFilter;
 import javax.tools.Diagnostic;
 import java.io.IOException;
-import java.util.List;
-import java.util.Set;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
 
 /**
  * @author Kaidan Gustave
@@ -37,9 +47,17 @@ import java.util.Set;
 @AutoService(Processor.class)
 @SupportedSourceVersion(SourceVersion.RELEASE_8)
 @SupportedAnnotationTypes("me.kgustave.jdagen.autolistener.AutoListener")
+@SupportedOptions({AutoListenerProcessor.PROFILE_OPTION, AutoListenerProcessor.HUB_OPTION})
 public final class AutoListenerProcessor extends ProcessorFrame
 {
     static final String LISTENER_SUFFIX = "Listener";
+    static final String PROFILE_OPTION = "jdagen.autolistener.profile";
+    static final String HUB_OPTION = "jdagen.autolistener.hub";
+
+    private final Map<String, Long> eventProfile = new HashMap<>();
+    private final ListenerHubGenerator hub = new ListenerHubGenerator();
+    private String hubName = null;
+    private boolean hubWritten = false;
 
     public AutoListenerProcessor()
     {
@@ -48,6 +66,22 @@ public final class AutoListenerProcessor extends ProcessorFrame
         supported.add(AutoListener.class);
     }
 
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv)
+    {
+        super.init(processingEnv);
+
+        String profile = processingEnv.getOptions().get(PROFILE_OPTION);
+
+        if(profile != null && !profile.trim().isEmpty())
+            loadEventProfile(profile.trim());
+
+        String hubName = processingEnv.getOptions().get(HUB_OPTION);
+
+        if(hubName != null && !hubName.trim().isEmpty())
+            this.hubName = hubName.trim();
+    }
+
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
     {
@@ -62,13 +96,18 @@ public final class AutoListenerProcessor extends ProcessorFrame
                 }
             }
         });
+
+        if(hubName != null && !hubWritten && !hub.isEmpty())
+            writeHub();
+
         return false;
     }
 
     private synchronized void processElement(TypeElement element)
     {
-        AutoListenerGenerator generator = new AutoListenerGenerator(element, elements, messager, types);
         AutoListener autoListener = element.getAnnotation(AutoListener.class);
+        AutoListenerGenerator generator = new AutoListenerGenerator(element, autoListener, eventProfile,
+            hubName != null, elements, messager, types);
 
         for(ExecutableElement e : ElementFilter.methodsIn(element.getEnclosedElements()))
         {
@@ -78,20 +117,37 @@ public final class AutoListenerProcessor extends ProcessorFrame
 
             List<? extends VariableElement> params = e.getParameters();
 
-            // Must have only one param
-            if(params.size() != 1) {
+            // Commands receive their event, followed by any arguments
+            if(e.getAnnotation(Command.class) != null && e.getAnnotation(NoEvent.class) == null) {
+                processCommandElement(generator, e);
+                continue;
+            }
+
+            // Must have only one param, or an event and a context
+            if(params.size() != 1 && !(params.size() == 2 && isContext(params.get(1).asType()))) {
                 generator.addNonEventMethod(e);
                 continue;
             }
 
             VariableElement param = params.get(0);
 
-            // We check if it's a method, returns void, has a single parameter,
-            // that the single parameter is a subtype of Event, and that the method
+            // Batched methods receive a List or an array of events
+            if(e.getAnnotation(Batch.class) != null && e.getAnnotation(NoEvent.class) == null) {
+                if(params.size() != 1) {
+                    messager.printMessage(Diagnostic.Kind.ERROR, "Methods annotated with @Batch cannot have a " +
+                                                                 "MessageContext!", e);
+                    continue;
+                }
+
+                processBatchElement(generator, e, param);
+                continue;
+            }
+
+            // We check if it's a method, returns void, that the first
+            // parameter is a subtype of Event, and that the method
             // is not annotated with @NoEvent
             if(e.getKind() != ElementKind.METHOD ||
                e.getReturnType().getKind() != TypeKind.VOID ||
-               params.size() != 1 ||
                !types.isSubtype(param.asType(), elements.getTypeElement(Event.class.getCanonicalName()).asType()) ||
                 e.getAnnotation(NoEvent.class) != null)
             {
@@ -99,33 +155,15 @@ public final class AutoListenerProcessor extends ProcessorFrame
                 continue;
             }
 
-            Element paramType = types.asElement(param.asType());
-            String packageName = elements.getPackageOf(paramType).getQualifiedName().toString();
-            String className = packageName + "." + paramType.getSimpleName().toString();
-
-            // Make sure that this is a valid event
-            if(!packageName.startsWith("net.dv8tion.jda")) {
-                generator.addNonEventMethod(e);
-                messager.printMessage(Diagnostic.Kind.WARNING, "Discovered an event type with a package name other that " +
-                                                               "doesn't correspond to the JDA Library packaging! This " +
-                                                               "behavior is not allowed! If you must have this behavior " +
-                                                               "please apply @NoEvent to "+e.getSimpleName());
-                continue;
-            }
-
-            try {
-                generator.addEventElement(Class.forName(className).asSubclass(Event.class), e);
-            } catch(ClassNotFoundException ex) {
-                messager.printMessage(Diagnostic.Kind.ERROR, "Could not find Event class for '"+className+"'!");
-            } catch(ClassCastException ex) {
-                messager.printMessage(Diagnostic.Kind.ERROR, ex.getMessage());
-            }
+            processEventElement(generator, e, param.asType());
         }
 
         // Catch any errors to make sure they're reported correctly.
         final TypeSpec spec;
         try {
             spec = generator.build(autoListener.value().isEmpty()? null : autoListener.value());
+        } catch(AutoListenerGenerator.ReportedException e) {
+            return;
         } catch(Throwable e) {
             messager.printMessage(Diagnostic.Kind.ERROR, "An error occurred while processing "+
                                                          element.getSimpleName()+": "+e.getMessage(), element);
@@ -144,6 +182,230 @@ public final class AutoListenerProcessor extends ProcessorFrame
             file.writeTo(filer);
         } catch(IOException e) {
             messager.printMessage(Diagnostic.Kind.ERROR, "Could not write '"+file.packageName+"."+spec.name+"' to file!");
+            return;
+        }
+
+        if(hubName == null)
+            return;
+
+        // The hub is written with the first round of listeners
+        if(hubWritten)
+        {
+            messager.printMessage(Diagnostic.Kind.WARNING, spec.name+" was generated after "+hubName+
+                                                           " and will not be part of it!", element);
+            return;
+        }
+
+        hub.addListener(ClassName.get(file.packageName, spec.name), generator.getEventTypes());
+    }
+
+    private void writeHub()
+    {
+        hubWritten = true;
+
+        int index = hubName.lastIndexOf('.');
+        String packageName = index < 0? "" : hubName.substring(0, index);
+        String className = hubName.substring(index + 1);
+
+        final TypeSpec spec;
+        try {
+            spec = hub.build(className);
+        } catch(Throwable e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "An error occurred while generating "+hubName+": "+e.getMessage());
+            return;
+        }
+
+        JavaFile file = JavaFile.builder(packageName, spec)
+                                .addFileComment("Generated using JDA-Generators: auto-listener.\n")
+                                .addFileComment("This file should not be modified.\n")
+                                .addFileComment("Modifications will be removed upon recompilation!")
+                                .build();
+
+        try {
+            file.writeTo(filer);
+        } catch(IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Could not write '"+hubName+"' to file!");
+        }
+    }
+
+    private void processBatchElement(AutoListenerGenerator generator, ExecutableElement e, VariableElement param)
+    {
+        TypeMirror type = param.asType();
+        TypeMirror eventType = null;
+
+        if(type.getKind() == TypeKind.ARRAY)
+        {
+            eventType = ((ArrayType) type).getComponentType();
+        }
+        else if(type.getKind() == TypeKind.DECLARED && types.isSameType(types.erasure(type),
+            types.erasure(elements.getTypeElement(List.class.getCanonicalName()).asType())))
+        {
+            List<? extends TypeMirror> typeArgs = ((DeclaredType) type).getTypeArguments();
+            if(typeArgs.size() == 1)
+                eventType = typeArgs.get(0);
+        }
+
+        if(eventType == null || e.getReturnType().getKind() != TypeKind.VOID ||
+           !types.isSubtype(eventType, elements.getTypeElement(Event.class.getCanonicalName()).asType()))
+        {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Methods annotated with @Batch must return void and have a " +
+                                                         "single List or array parameter of an Event type!", e);
+            return;
+        }
+
+        processEventElement(generator, e, eventType);
+    }
+
+    private void processEventElement(AutoListenerGenerator generator, ExecutableElement e, TypeMirror eventType)
+    {
+        Element paramType = types.asElement(eventType);
+        String packageName = elements.getPackageOf(paramType).getQualifiedName().toString();
+        String className = packageName + "." + paramType.getSimpleName().toString();
+
+        // Make sure that this is a valid event
+        if(!packageName.startsWith("net.dv8tion.jda")) {
+            generator.addNonEventMethod(e);
+            messager.printMessage(Diagnostic.Kind.WARNING, "Discovered an event type with a package name other that " +
+                                                           "doesn't correspond to the JDA Library packaging! This " +
+                                                           "behavior is not allowed! If you must have this behavior " +
+                                                           "please apply @NoEvent to "+e.getSimpleName());
+            return;
+        }
+
+        // Contexts are created from the message of the event
+        List<? extends VariableElement> params = e.getParameters();
+        if(params.size() > 1 && isContext(params.get(1).asType()) &&
+           ElementUtils.findAccessor((TypeElement) paramType, elements, "getMessage") == null)
+        {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Methods with a MessageContext must handle an event " +
+                                                         "with a getMessage() accessor!", e);
+            return;
+        }
+
+        // Keyword triggers scan the content of a message
+        Contains contains = e.getAnnotation(Contains.class);
+        if(contains != null)
+        {
+            if(e.getAnnotation(Command.class) != null)
+            {
+                messager.printMessage(Diagnostic.Kind.ERROR, "Methods cannot be annotated with both @Command and @Contains!", e);
+                return;
+            }
+
+            if(ElementUtils.findAccessor((TypeElement) paramType, elements, "getMessage") == null)
+            {
+                messager.printMessage(Diagnostic.Kind.ERROR, "Methods annotated with @Contains must handle an event " +
+                                                             "with a getMessage() accessor!", e);
+                return;
+            }
+
+            if(contains.value().length == 0 || Arrays.stream(contains.value()).anyMatch(String::isEmpty))
+            {
+                messager.printMessage(Diagnostic.Kind.ERROR, "@Contains keywords cannot be empty!", e);
+                return;
+            }
+        }
+
+        try {
+            generator.addEventElement(Class.forName(className).asSubclass(Event.class), e);
+        } catch(ClassNotFoundException ex) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Could not find Event class for '"+className+"'!");
+        } catch(ClassCastException ex) {
+            messager.printMessage(Diagnostic.Kind.ERROR, ex.getMessage());
+        }
+    }
+
+    private void processCommandElement(AutoListenerGenerator generator, ExecutableElement e)
+    {
+        List<? extends VariableElement> params = e.getParameters();
+
+        if(e.getReturnType().getKind() != TypeKind.VOID || params.isEmpty() ||
+           !types.isSubtype(params.get(0).asType(), elements.getTypeElement(Event.class.getCanonicalName()).asType()))
+        {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Methods annotated with @Command must return void and have " +
+                                                         "an Event type as their first parameter!", e);
+            return;
+        }
+
+        if(e.getAnnotation(Batch.class) != null)
+        {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Methods annotated with @Command cannot be batched!", e);
+            return;
+        }
+
+        TypeMirror eventType = params.get(0).asType();
+        if(ElementUtils.findAccessor((TypeElement) types.asElement(eventType), elements, "getMessage") == null)
+        {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Methods annotated with @Command must handle an event " +
+                                                         "with a getMessage() accessor!", e);
+            return;
+        }
+
+        for(String name : e.getAnnotation(Command.class).value())
+        {
+            if(name.isEmpty() || name.chars().anyMatch(Character::isWhitespace))
+            {
+                messager.printMessage(Diagnostic.Kind.ERROR, "Command names cannot be empty or contain whitespace!", e);
+                return;
+            }
+        }
+
+        // The context, if there is one, comes before the arguments
+        int first = params.size() > 1 && isContext(params.get(1).asType())? 2 : 1;
+        for(VariableElement arg : params.subList(first, params.size()))
+        {
+            if(!isCommandArgument(arg.asType()))
+            {
+                messager.printMessage(Diagnostic.Kind.ERROR, "Command arguments must be an int, long, double, " +
+                                                             "String or Duration!", arg);
+                return;
+            }
+        }
+
+        processEventElement(generator, e, eventType);
+    }
+
+    private boolean isCommandArgument(TypeMirror type)
+    {
+        switch(type.getKind())
+        {
+            case INT:
+            case LONG:
+            case DOUBLE:
+                return true;
+
+            case DECLARED:
+                String name = ((TypeElement) types.asElement(type)).getQualifiedName().toString();
+                return name.equals(String.class.getCanonicalName()) || name.equals(Duration.class.getCanonicalName());
+
+            default:
+                return false;
+        }
+    }
+
+    private boolean isContext(TypeMirror type)
+    {
+        return types.isSameType(type, elements.getTypeElement(MessageContext.class.getCanonicalName()).asType());
+    }
+
+    private void loadEventProfile(String path)
+    {
+        Properties properties = new Properties();
+
+        try(Reader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch(IOException e) {
+            messager.printMessage(Diagnostic.Kind.WARNING, "Could not read event profile '"+path+"': "+e.getMessage());
+            return;
+        }
+
+        for(String className : properties.stringPropertyNames())
+        {
+            try {
+                eventProfile.put(className, Long.parseLong(properties.getProperty(className).trim()));
+            } catch(NumberFormatException e) {
+                messager.printMessage(Diagnostic.Kind.WARNING, "Invalid count for '"+className+"' in event profile!");
+            }
         }
     }
 
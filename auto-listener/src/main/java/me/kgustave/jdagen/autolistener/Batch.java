@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a method that handles events in batches.
+ *
+ * <p>Methods marked with this must have a single parameter that is either a
+ * {@link java.util.List List} or an array of a subclass of
+ * {@link net.dv8tion.jda.core.events.Event Event}:
+ *
+ * <pre><code>
+ *     {@link me.kgustave.jdagen.autolistener.AutoListener}
+ *     public class MyListener
+ *     {
+ *         // Receives up to 100 messages at once, at most a second after the first one.
+ *        {@literal @Batch(size = 100, maxDelay = "1s")}
+ *         public void logMessages(List&lt;MessageReceivedEvent&gt; events)
+ *         {
+ *             // code
+ *         }
+ *     }
+ * </code></pre>
+ *
+ * The generated listener buffers matching events and flushes them to the method when
+ * either the batch reaches {@link #size()} events, or {@link #maxDelay()} has passed since
+ * the first event of the batch was buffered, whichever comes first.
+ *
+ * <p>Batches filled by an event are flushed on the thread that fired it, while batches
+ * flushed because of their delay are flushed on the virtual threads of the listener if it
+ * has any, and on a shared pool of threads otherwise. Flushing can be moved onto a pool of
+ * its own by also marking the method with {@link Blocking @Blocking} or {@link CpuBound @CpuBound}.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Batch
+{
+    /**
+     * The maximum number of events in a single batch.
+     * <br>If left unset, this will default to {@code 100}.
+     *
+     * @return The size of a batch.
+     */
+    int size() default 100;
+
+    /**
+     * The maximum time the first event of a batch waits before the batch is flushed,
+     * as a number followed by a unit: {@code ms}, {@code s}, {@code m}, {@code h} or {@code d}.
+     * <br>If left unset, this will default to {@code "1s"}.
+     *
+     * @return The maximum delay of a batch.
+     */
+    String maxDelay() default "1s";
+}
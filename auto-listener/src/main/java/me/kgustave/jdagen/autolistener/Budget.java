@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import java.lang.annotation.*;
+
+/**
+ * Sets the time budget of a method watched by the
+ * {@link AutoListener#watchdog() watchdog} of a generated listener.
+ *
+ * <p>Invocations of the method running longer than this are reported along
+ * with samples of the stack of the thread running them:
+ *
+ * <pre><code>
+ *     {@literal @AutoListener(watchdog = "250ms")}
+ *     public class MyListener
+ *     {
+ *         // Allowed to take up to 2 seconds
+ *        {@literal @Budget("2s")}
+ *         public void onGuildJoin(GuildJoinEvent event)
+ *         {
+ *             // code
+ *         }
+ *     }
+ * </code></pre>
+ *
+ * Marking a method with this enables the watchdog of its listener, even if
+ * no default budget was set on {@link AutoListener @AutoListener}.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Budget
+{
+    /**
+     * The time budget of the method, as a number followed by a unit:
+     * {@code ms}, {@code s}, {@code m}, {@code h} or {@code d}.
+     *
+     * @return The time budget of the method.
+     */
+    String value();
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import net.dv8tion.jda.core.entities.ChannelType;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a method that is only invoked for events from certain types of channels.
+ *
+ * <pre><code>
+ *     {@link me.kgustave.jdagen.autolistener.AutoListener}
+ *     public class MyListener
+ *     {
+ *        {@literal @ChannelTypes(ChannelType.TEXT)}
+ *         public void onMessage(MessageReceivedEvent event)
+ *         {
+ *             // code
+ *         }
+ *     }
+ * </code></pre>
+ *
+ * The event of the method must have a {@code getChannelType()} accessor, or a
+ * {@code getChannel()} accessor returning a channel with a {@code getType()} accessor.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ChannelTypes
+{
+    /**
+     * The types of channels to invoke the method for.
+     *
+     * @return The types of channels to invoke the method for.
+     */
+    ChannelType[] value();
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a method that only handles the latest of the events fired for
+ * the same entity within a window of time.
+ *
+ * <pre><code>
+ *     {@link me.kgustave.jdagen.autolistener.AutoListener}
+ *     public class MyListener
+ *     {
+ *         // Only the latest nickname of each member, at most every half a second
+ *        {@literal @Coalesce(key = Key.USER, window = "500ms")}
+ *         public void onNickChange(GuildMemberNickChangeEvent event)
+ *         {
+ *             // code
+ *         }
+ *     }
+ * </code></pre>
+ *
+ * The generated listener keeps the newest pending event for each {@link #key() key},
+ * replacing any older one, and delivers all pending events to the method once the
+ * window has passed since the first of them was fired. Events whose key entity is
+ * {@code null} share a single key, so only the latest of them is delivered.
+ *
+ * <p>Events are delivered in no particular order, on the virtual threads of the listener if
+ * it has any, and on a shared pool of threads otherwise. Delivering can be moved onto a pool
+ * of its own by also marking the method with {@link Blocking @Blocking} or {@link CpuBound @CpuBound}.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesce
+{
+    /**
+     * The entity events are coalesced by.
+     *
+     * @return The key of events.
+     */
+    Key key();
+
+    /**
+     * The time pending events are held for, as a number followed by a unit:
+     * {@code ms}, {@code s}, {@code m}, {@code h} or {@code d}.
+     * <br>If left unset, this will default to {@code "500ms"}.
+     *
+     * @return The window of time events are coalesced within.
+     */
+    String window() default "500ms";
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a method that handles a command.
+ *
+ * <p>Methods marked with this are only invoked for messages starting with the
+ * {@link AutoListener#prefix() prefix} of the listener followed by one of the
+ * names of the command, and then whitespace or the end of the message:
+ *
+ * <pre><code>
+ *     {@literal @AutoListener(prefix = "!")}
+ *     public class MyListener
+ *     {
+ *         // Invoked for "!ping" and "!p"
+ *        {@literal @Command({"ping", "p"})}
+ *         public void ping(MessageReceivedEvent event)
+ *         {
+ *             // code
+ *         }
+ *     }
+ * </code></pre>
+ *
+ * The event of the method must have a {@code getMessage()} accessor.
+ *
+ * <p>After its event, the method may declare parameters that are bound from the
+ * whitespace separated arguments following the command name:
+ * <ul>
+ *     <li>{@code int}, {@code long} and {@code double}: a number. A {@code long} also
+ *     accepts a user, role or channel mention, binding the ID mentioned.</li>
+ *     <li>{@link java.time.Duration Duration}: a duration such as {@code 30s} or {@code 1h30m}.</li>
+ *     <li>{@link String}: a single argument, or the rest of the message if it's the last parameter.</li>
+ * </ul>
+ * The generated listener scans the message once to bind them, starting after the prefix and
+ * name, even if the prefix contains whitespace.
+ *
+ * <p><b>If an argument is missing or malformed, the method is silently not invoked</b>, and
+ * the message isn't handled by any other command either. To reply with the usage of a command
+ * instead, declare a {@link String} as the last parameter and parse the rest of the message
+ * in the method.
+ *
+ * <p>The names of all the commands handling the same event type are compiled into a single
+ * trie stored in the generated listener, so routing a message takes one pass over the
+ * characters of its prefix and command name, regardless of how many commands there are.
+ * <br>Names are matched case sensitively.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Command
+{
+    /**
+     * The names of the command, the first being its main name and the rest aliases.
+     * <br>Names cannot contain whitespace.
+     *
+     * @return The names of the command.
+     */
+    String[] value();
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds the encoded form of a {@link me.kgustave.jdagen.autolistener.runtime.CommandTrie CommandTrie}
+ * at compile time.
+ *
+ * @author Kaidan Gustave
+ */
+final class CommandTrieBuilder
+{
+    // States are indexed by chars. Encoded strings too long for a single
+    // constant are split by the generator, so this is the only limit.
+    private static final int MAX_STATES = Character.MAX_VALUE;
+
+    private final List<Map<Character, Integer>> edges = new ArrayList<>();
+    private final List<Integer> accepts = new ArrayList<>();
+    private int keys = 0;
+
+    CommandTrieBuilder()
+    {
+        addState();
+    }
+
+    /**
+     * Adds a key, which is given the next index.
+     *
+     * @throws IllegalStateException
+     *         If the key was already added.
+     */
+    void add(String key)
+    {
+        int state = 0;
+        for(char c : key.toCharArray())
+        {
+            Integer next = edges.get(state).get(c);
+            if(next == null)
+            {
+                next = addState();
+                edges.get(state).put(c, next);
+            }
+            state = next;
+        }
+
+        if(accepts.get(state) != 0)
+            throw new IllegalStateException("Command '"+key+"' is declared more than once!");
+
+        accepts.set(state, ++keys);
+    }
+
+    /**
+     * Builds the offsets, labels, targets and accepts strings of the trie, in that order.
+     */
+    String[] build()
+    {
+        if(edges.size() > MAX_STATES)
+            throw new IllegalStateException("Too many commands to build a trie of!");
+
+        StringBuilder offsets = new StringBuilder();
+        StringBuilder labels = new StringBuilder();
+        StringBuilder targets = new StringBuilder();
+        StringBuilder accepted = new StringBuilder();
+
+        for(int state = 0; state < edges.size(); state++)
+        {
+            offsets.append((char) labels.length());
+            accepted.append((char) (int) accepts.get(state));
+
+            // TreeMap keeps the labels of each state sorted
+            for(Map.Entry<Character, Integer> edge : edges.get(state).entrySet())
+            {
+                labels.append(edge.getKey().charValue());
+                targets.append((char) (int) edge.getValue());
+            }
+        }
+        offsets.append((char) labels.length());
+
+        return new String[] {offsets.toString(), labels.toString(), targets.toString(), accepted.toString()};
+    }
+
+    private int addState()
+    {
+        edges.add(new TreeMap<>());
+        accepts.add(0);
+        return edges.size() - 1;
+    }
+}
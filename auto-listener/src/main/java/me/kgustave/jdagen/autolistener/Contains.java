@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a method that is only invoked for messages containing at least one of a set of keywords.
+ *
+ * <pre><code>
+ *     {@link me.kgustave.jdagen.autolistener.AutoListener}
+ *     public class MyListener
+ *     {
+ *        {@literal @Contains({"discord.gg/", "free nitro"})}
+ *         public void onSpam(MessageReceivedEvent event)
+ *         {
+ *             // code
+ *         }
+ *     }
+ * </code></pre>
+ *
+ * The event of the method must have a {@code getMessage()} accessor.
+ *
+ * <p>The keywords of all the methods handling the same event type are compiled into a
+ * single Aho-Corasick automaton stored in the generated listener, so each message is
+ * scanned exactly once, and only the methods whose keywords were found are invoked.
+ * <br>Keywords are matched anywhere in the message, ignoring case.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Contains
+{
+    /**
+     * The keywords to look for.
+     *
+     * @return The keywords to look for.
+     */
+    String[] value();
+}
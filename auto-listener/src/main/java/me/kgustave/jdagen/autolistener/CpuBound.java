@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a listener method as one that is CPU-bound, for example rendering images.
+ *
+ * <p>The generated listener invokes a method marked with this on its own bounded pool
+ * of threads, a bulkhead, instead of the one set by {@link AutoListener#execution()}.
+ * Each method has its own bulkhead, so a saturated method cannot starve any other.
+ * Events fired while the queue of a bulkhead is full are dropped for that method.
+ *
+ * <p>The generated class will have a {@code shutdown()} method to stop these threads.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ *
+ * @see    Blocking
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CpuBound
+{
+    /**
+     * The number of threads of the bulkhead.
+     * <br>If left unset or provided {@code 0} or less, this will default to
+     * the number of available processors.
+     *
+     * @return The number of threads of the bulkhead.
+     */
+    int threads() default 0;
+
+    /**
+     * The maximum number of events queued for the bulkhead.
+     * <br>If left unset, this will default to {@code 256}.
+     *
+     * @return The queue limit of the bulkhead.
+     */
+    int queue() default 256;
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the durations used in annotation attributes, such as {@code "500ms"} or {@code "10s"}.
+ *
+ * @author Kaidan Gustave
+ */
+final class Durations
+{
+    private static final Pattern DURATION = Pattern.compile("(\\d+)\\s*(ms|s|m|h|d)");
+
+    static long toMillis(String duration)
+    {
+        Matcher matcher = DURATION.matcher(duration.trim().toLowerCase());
+
+        if(!matcher.matches())
+            throw new IllegalArgumentException("Invalid duration '"+duration+"'!");
+
+        long amount = Long.parseLong(matcher.group(1));
+
+        switch(matcher.group(2))
+        {
+            case "ms": return amount;
+            case "s":  return TimeUnit.SECONDS.toMillis(amount);
+            case "m":  return TimeUnit.MINUTES.toMillis(amount);
+            case "h":  return TimeUnit.HOURS.toMillis(amount);
+            default:   return TimeUnit.DAYS.toMillis(amount);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a method that is only invoked for events from certain guilds.
+ *
+ * <pre><code>
+ *     {@link me.kgustave.jdagen.autolistener.AutoListener}
+ *     public class MyListener
+ *     {
+ *        {@literal @Guilds({301012120613552138L, 147698382092238848L})}
+ *         public void onMessage(MessageReceivedEvent event)
+ *         {
+ *             // code
+ *         }
+ *     }
+ * </code></pre>
+ *
+ * The event of the method must have a {@code getGuild()} accessor. Events without
+ * a guild, such as private messages, are never passed to the method.
+ *
+ * <p>The IDs are sorted when the listener is generated, and looked up with a binary search.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Guilds
+{
+    /**
+     * The IDs of the guilds to invoke the method for.
+     *
+     * @return The IDs of the guilds to invoke the method for.
+     */
+    long[] value();
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+/**
+ * The entities that events can be keyed by in generated listeners.
+ *
+ * <p>A key is resolved from the event a handler receives using its accessor
+ * for the respective entity, for example {@code getGuild()} for {@link #GUILD}.
+ * Events that have no such entity at runtime (for example a
+ * {@link net.dv8tion.jda.core.events.message.MessageReceivedEvent MessageReceivedEvent}
+ * fired from a private channel when keyed by {@code GUILD}) all share the key {@code 0}.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public enum Key
+{
+    /**
+     * Keys an event by the ID of its {@link net.dv8tion.jda.core.entities.Guild Guild},
+     * using {@code getGuild()}.
+     */
+    GUILD("getGuild"),
+
+    /**
+     * Keys an event by the ID of its channel, using {@code getChannel()}.
+     */
+    CHANNEL("getChannel"),
+
+    /**
+     * Keys an event by the ID of its {@link net.dv8tion.jda.core.entities.User User},
+     * using {@code getAuthor()} or {@code getUser()}.
+     */
+    USER("getAuthor", "getUser");
+
+    private final String[] accessors;
+
+    Key(String... accessors)
+    {
+        this.accessors = accessors;
+    }
+
+    String[] getAccessors()
+    {
+        return accessors;
+    }
+}
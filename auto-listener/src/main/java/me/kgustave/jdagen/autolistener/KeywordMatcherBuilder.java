@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import java.util.*;
+
+/**
+ * Builds the encoded form of a {@link me.kgustave.jdagen.autolistener.runtime.KeywordMatcher KeywordMatcher}
+ * at compile time.
+ *
+ * @author Kaidan Gustave
+ */
+final class KeywordMatcherBuilder
+{
+    static final int MAX_SETS = Long.SIZE;
+
+    // States are indexed by chars. Encoded strings too long for a single
+    // constant are split by the generator, so this is the only limit.
+    private static final int MAX_STATES = Character.MAX_VALUE;
+
+    private final List<Map<Character, Integer>> edges = new ArrayList<>();
+    private final List<Long> outputs = new ArrayList<>();
+
+    KeywordMatcherBuilder()
+    {
+        addState();
+    }
+
+    /**
+     * Adds a keyword to the set with the provided index.
+     */
+    void add(String keyword, int set)
+    {
+        if(set >= MAX_SETS)
+            throw new IllegalStateException("No more than "+MAX_SETS+" methods can use @Contains for one event!");
+
+        int state = 0;
+        for(char c : keyword.toCharArray())
+        {
+            c = Character.toLowerCase(c);
+            Integer next = edges.get(state).get(c);
+            if(next == null)
+            {
+                next = addState();
+                edges.get(state).put(c, next);
+            }
+            state = next;
+        }
+
+        outputs.set(state, outputs.get(state) | 1L << set);
+    }
+
+    /**
+     * Builds the offsets, labels, targets, failures and outputs strings of the automaton, in that order.
+     */
+    String[] build()
+    {
+        if(edges.size() > MAX_STATES)
+            throw new IllegalStateException("Too many keywords to build an automaton of!");
+
+        // Failure links are found breadth first, so the failure
+        // of a state is always resolved before its children.
+        int[] failures = new int[edges.size()];
+        Deque<Integer> queue = new ArrayDeque<>(edges.get(0).values());
+        while(!queue.isEmpty())
+        {
+            int state = queue.poll();
+            for(Map.Entry<Character, Integer> edge : edges.get(state).entrySet())
+            {
+                int child = edge.getValue();
+                int failure = failures[state];
+                while(failure != 0 && !edges.get(failure).containsKey(edge.getKey()))
+                    failure = failures[failure];
+
+                Integer target = edges.get(failure).get(edge.getKey());
+                failures[child] = target == null || target == child? 0 : target;
+                outputs.set(child, outputs.get(child) | outputs.get(failures[child]));
+                queue.add(child);
+            }
+        }
+
+        StringBuilder offsets = new StringBuilder();
+        StringBuilder labels = new StringBuilder();
+        StringBuilder targets = new StringBuilder();
+        StringBuilder failed = new StringBuilder();
+        StringBuilder output = new StringBuilder();
+
+        for(int state = 0; state < edges.size(); state++)
+        {
+            offsets.append((char) labels.length());
+            failed.append((char) failures[state]);
+
+            long mask = outputs.get(state);
+            output.append((char) (mask >>> 48)).append((char) (mask >>> 32))
+                  .append((char) (mask >>> 16)).append((char) mask);
+
+            // TreeMap keeps the labels of each state sorted
+            for(Map.Entry<Character, Integer> edge : edges.get(state).entrySet())
+            {
+                labels.append(edge.getKey().charValue());
+                targets.append((char) (int) edge.getValue());
+            }
+        }
+        offsets.append((char) labels.length());
+
+        return new String[] {offsets.toString(), labels.toString(), targets.toString(), failed.toString(), output.toString()};
+    }
+
+    private int addState()
+    {
+        edges.add(new TreeMap<>());
+        outputs.add(0L);
+        return edges.size() - 1;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import com.squareup.javapoet.*;
+import me.kgustave.jdagen.autolistener.runtime.SlottedListener;
+import me.kgustave.jdagen.autolistener.runtime.TypedListener;
+import net.dv8tion.jda.core.events.Event;
+
+import javax.annotation.Generated;
+import javax.lang.model.element.Modifier;
+import java.util.*;
+
+/**
+ * Generates a single listener holding every listener generated in a compilation.
+ *
+ * <p>The hub asks each listener for the slot of every type of event once, and keeps
+ * the listeners and slots of the interested ones as a route for the type. Events are
+ * passed along their route straight to the handlers of their slot, so listeners that
+ * aren't interested are never called, and interested ones don't check the event again.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+final class ListenerHubGenerator
+{
+    private static final String LISTENERS_FIELD = "listeners";
+    private static final String ROUTES_FIELD = "routes";
+
+    private final Map<ClassName, Set<Class<? extends Event>>> listeners;
+
+    ListenerHubGenerator()
+    {
+        this.listeners = new LinkedHashMap<>(); // Keep processing order
+    }
+
+    void addListener(ClassName listener, Set<Class<? extends Event>> eventTypes)
+    {
+        listeners.put(listener, eventTypes);
+    }
+
+    boolean isEmpty()
+    {
+        return listeners.isEmpty();
+    }
+
+    TypeSpec build(String className)
+    {
+        TypeSpec.Builder builder = TypeSpec.classBuilder(className)
+                                           .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                                           .addSuperinterface(TypedListener.class);
+
+        builder.addAnnotation(AnnotationSpec.builder(Generated.class).addMember("value",
+            CodeBlock.builder().add("\"me.kgustave.jdagen.autolistener.AutoListenerProcessor\"").build()).build());
+
+        builder.addField(SlottedListener[].class, LISTENERS_FIELD, Modifier.PRIVATE, Modifier.FINAL);
+
+        // Pairs of the index and the slot of each interested listener,
+        // computed once for each type of event received
+        TypeSpec classValue = TypeSpec.anonymousClassBuilder("")
+            .superclass(ParameterizedTypeName.get(ClassValue.class, int[].class))
+            .addMethod(MethodSpec.methodBuilder("computeValue")
+                                 .addAnnotation(Override.class)
+                                 .addModifiers(Modifier.PROTECTED)
+                                 .returns(int[].class)
+                                 .addParameter(ParameterizedTypeName.get(ClassName.get(Class.class),
+                                     WildcardTypeName.subtypeOf(Object.class)), "type")
+                                 .addStatement("int[] route = new int[$L.length * 2]", LISTENERS_FIELD)
+                                 .addStatement("int size = 0")
+                                 .beginControlFlow("for(int i = 0; i < $L.length; i++)", LISTENERS_FIELD)
+                                 .addStatement("int slot = $L[i].getSlot(type)", LISTENERS_FIELD)
+                                 .beginControlFlow("if(slot != 0)")
+                                 .addStatement("route[size++] = i")
+                                 .addStatement("route[size++] = slot")
+                                 .endControlFlow()
+                                 .endControlFlow()
+                                 .addStatement("return $T.copyOf(route, size)", Arrays.class)
+                                 .build())
+            .build();
+
+        builder.addField(FieldSpec.builder(ParameterizedTypeName.get(ClassValue.class, int[].class),
+                                           ROUTES_FIELD, Modifier.PRIVATE, Modifier.FINAL)
+                                  .initializer("$L", classValue).build());
+
+        // Every listener is passed in, in the order they were processed
+        MethodSpec.Builder constructor = MethodSpec.constructorBuilder().addModifiers(Modifier.PUBLIC);
+        CodeBlock.Builder listenersInit = CodeBlock.builder().add("new $T[] {", SlottedListener.class);
+        Set<String> names = new HashSet<>();
+        int index = 0;
+        for(ClassName listener : listeners.keySet())
+        {
+            String simpleName = listener.simpleName();
+            String name = Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1);
+            for(int i = 2; !names.add(name); i++)
+                name = Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1) + i;
+
+            constructor.addParameter(listener, name);
+            listenersInit.add(index++ == 0? "$N" : ", $N", name);
+        }
+        constructor.addStatement("this.$L = $L", LISTENERS_FIELD, listenersInit.add("}").build());
+        builder.addMethod(constructor.build());
+
+        // Everything handled by any of the listeners
+        Set<Class<? extends Event>> handled = new LinkedHashSet<>();
+        listeners.values().forEach(handled::addAll);
+
+        CodeBlock.Builder eventTypes = CodeBlock.builder().add("new $T<?>[] {", Class.class);
+        int i = 0;
+        for(Class<? extends Event> eventType : handled)
+            eventTypes.add(i++ == 0? "$T.class" : ", $T.class", eventType);
+
+        builder.addMethod(MethodSpec.methodBuilder("getEventTypes")
+                                    .addAnnotation(Override.class)
+                                    .addModifiers(Modifier.PUBLIC)
+                                    .returns(ArrayTypeName.of(ParameterizedTypeName.get(ClassName.get(Class.class),
+                                        WildcardTypeName.subtypeOf(Object.class))))
+                                    .addStatement("return $L", eventTypes.add("}").build())
+                                    .build());
+
+        // A listener that throws doesn't keep the event from the ones after it
+        builder.addMethod(MethodSpec.methodBuilder("onEvent")
+                                    .addAnnotation(Override.class)
+                                    .addModifiers(Modifier.PUBLIC)
+                                    .addParameter(Event.class, "event")
+                                    .addStatement("int[] route = $L.get(event.getClass())", ROUTES_FIELD)
+                                    .beginControlFlow("for(int i = 0; i < route.length; i += 2)")
+                                    .beginControlFlow("try")
+                                    .addStatement("$L[route[i]].onEvent(route[i + 1], event)", LISTENERS_FIELD)
+                                    .nextControlFlow("catch($T t)", Throwable.class)
+                                    .addStatement("$T current = $T.currentThread()", Thread.class, Thread.class)
+                                    .addStatement("current.getUncaughtExceptionHandler().uncaughtException(current, t)")
+                                    .endControlFlow()
+                                    .endControlFlow()
+                                    .build());
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import java.lang.annotation.*;
+
+/**
+ * Sets the {@link Key Key} that events are ordered by when they are delegated to the
+ * marked method by a generated listener using {@link AutoListener.Execution#KEYED KEYED} execution.
+ *
+ * <p>Events that resolve to the same key are always handled in the order they were
+ * fired, while events with different keys may be handled in parallel:
+ *
+ * <pre><code>
+ *     {@literal @AutoListener(execution = AutoListener.Execution.KEYED)}
+ *     public class MyListener
+ *     {
+ *         // Messages in the same channel are handled in order,
+ *         // messages in different channels are handled in parallel.
+ *        {@literal @OrderedBy(Key.CHANNEL)}
+ *         public void onMessage(MessageReceivedEvent event)
+ *         {
+ *             // code
+ *         }
+ *     }
+ * </code></pre>
+ *
+ * Methods without this annotation are ordered by {@link Key#GUILD GUILD} if their
+ * event has a {@code getGuild()} accessor, and otherwise share a single order.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OrderedBy
+{
+    /**
+     * The key to order events by.
+     *
+     * @return The key to order events by.
+     */
+    Key value();
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a method that is only invoked for a sample of the events it handles.
+ *
+ * <pre><code>
+ *     {@link me.kgustave.jdagen.autolistener.AutoListener}
+ *     public class MyListener
+ *     {
+ *         // About 1 in every 100 events
+ *        {@literal @Sample(rate = 0.01)}
+ *         public void onTyping(UserTypingEvent event)
+ *         {
+ *             // code
+ *         }
+ *
+ *         // Exactly every 100th event
+ *        {@literal @Sample(everyN = 100)}
+ *         public void onPresence(UserOnlineStatusUpdateEvent event)
+ *         {
+ *             // code
+ *         }
+ *     }
+ * </code></pre>
+ *
+ * Only one of {@link #rate()} or {@link #everyN()} can be set.
+ *
+ * <p>Events are sampled by the generated listener after any other guards, and
+ * before the method is handed to any executor, so events that are not sampled
+ * never leave the thread firing them. Sampling never allocates or locks.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ *
+ * @see    me.kgustave.jdagen.autolistener.runtime.Sampler
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Sample
+{
+    /**
+     * The probability of each event being sampled, greater than {@code 0} and at most {@code 1}.
+     *
+     * @return The probability of each event being sampled.
+     */
+    double rate() default 1.0;
+
+    /**
+     * The number of events per sampled event on each thread.
+     * <br>With an {@code everyN} of {@code 100}, the 100th, 200th, 300th and so on events
+     * fired on each thread are sampled.
+     *
+     * @return The number of events per sampled event.
+     */
+    int everyN() default 1;
+}
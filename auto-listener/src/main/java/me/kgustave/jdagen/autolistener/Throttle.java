@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import java.lang.annotation.*;
+
+/**
+ * Limits how often a method can be invoked for the same entity.
+ *
+ * <pre><code>
+ *     {@link me.kgustave.jdagen.autolistener.AutoListener}
+ *     public class MyListener
+ *     {
+ *         // Each user can ping 5 times every 10 seconds
+ *        {@literal @Throttle(per = Key.USER, permits = 5, period = "10s")}
+ *        {@literal @Command("ping")}
+ *         public void ping(MessageReceivedEvent event)
+ *         {
+ *             // code
+ *         }
+ *     }
+ * </code></pre>
+ *
+ * Each {@link #per() key} has a bucket of {@link #permits()} permits, refilled evenly
+ * over the {@link #period()}. Events arriving while the bucket of their key is empty are
+ * dropped by the generated listener before the method is invoked or handed to any executor.
+ *
+ * <p>Buckets are kept in a table of a fixed {@link #capacity() capacity}, so memory stays
+ * bounded however many keys there are. Buckets that have refilled are reused, and when the
+ * table is crowded the fullest bucket nearby is replaced.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ *
+ * @see    me.kgustave.jdagen.autolistener.runtime.TokenBuckets
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Throttle
+{
+    /**
+     * The entity events are limited per.
+     * <br>If left unset, this will default to {@link Key#USER USER}.
+     *
+     * @return The key of events.
+     */
+    Key per() default Key.USER;
+
+    /**
+     * The number of invocations allowed for each key within a period.
+     *
+     * @return The number of permits per period.
+     */
+    int permits();
+
+    /**
+     * The period permits are refilled over, as a number followed by a unit:
+     * {@code ms}, {@code s}, {@code m}, {@code h} or {@code d}.
+     * <br>The period must be at least {@code 1ms}.
+     *
+     * @return The period permits are refilled over.
+     */
+    String period();
+
+    /**
+     * The maximum number of keys tracked at once.
+     * <br>If left unset, this will default to {@code 4096}.
+     *
+     * @return The number of keys tracked.
+     */
+    int capacity() default 4096;
+}
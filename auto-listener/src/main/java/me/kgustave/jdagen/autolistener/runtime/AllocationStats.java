@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accounts the bytes allocated by each method of a listener.
+ *
+ * <p>Allocations are measured with the per-thread allocation counter of
+ * {@code com.sun.management.ThreadMXBean}, read before and after an invocation,
+ * for on average every Nth invocation of each method. Every invocation is counted,
+ * and the total of a method is estimated by scaling its sampled bytes by its own
+ * ratio of invocations to samples, so with sampling they are approximate.
+ *
+ * <p>Generated listeners with {@link me.kgustave.jdagen.autolistener.AutoListener#allocationSampling()
+ * allocation sampling} enabled account their methods using an instance of this, which is
+ * available from their generated {@code getAllocations()} method.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class AllocationStats
+{
+    private static final com.sun.management.ThreadMXBean THREADS = findThreadMXBean();
+
+    private final String name;
+    private final String[] handlers;
+    private final int every;
+    private final LongAdder[] sampledBytes;
+    private final LongAdder[] sampledCalls;
+    private final LongAdder[] invocations;
+
+    /**
+     * Creates a new AllocationStats.
+     *
+     * @param  name
+     *         The name of the listener.
+     * @param  every
+     *         Every how many invocations to measure, {@code 1} measures all of them.
+     * @param  handlers
+     *         The names of the methods of the listener, in the order of their IDs.
+     */
+    public AllocationStats(String name, int every, String... handlers)
+    {
+        this.name = name;
+        this.handlers = handlers;
+        this.every = Math.max(1, every);
+        this.sampledBytes = new LongAdder[handlers.length];
+        this.sampledCalls = new LongAdder[handlers.length];
+        this.invocations = new LongAdder[handlers.length];
+        for(int i = 0; i < handlers.length; i++)
+        {
+            sampledBytes[i] = new LongAdder();
+            sampledCalls[i] = new LongAdder();
+            invocations[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Whether or not allocations can be measured by the running JVM.
+     *
+     * @return {@code true} if allocations can be measured.
+     */
+    public static boolean isSupported()
+    {
+        return THREADS != null;
+    }
+
+    /**
+     * Gets the name of the listener.
+     *
+     * @return The name of the listener.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Gets the estimated number of bytes allocated by each method of the listener.
+     *
+     * @return The estimated bytes allocated, mapped by the names of the methods.
+     */
+    public Map<String, Long> getAllocatedBytes()
+    {
+        Map<String, Long> allocated = new LinkedHashMap<>();
+        for(int i = 0; i < handlers.length; i++)
+            allocated.put(handlers[i], getAllocatedBytes(i));
+        return allocated;
+    }
+
+    /**
+     * Gets the estimated number of bytes allocated by a method.
+     *
+     * @param  handler
+     *         The ID of the method.
+     *
+     * @return The estimated bytes allocated by the method.
+     */
+    public long getAllocatedBytes(int handler)
+    {
+        long calls = sampledCalls[handler].sum();
+        if(calls == 0)
+            return 0;
+        long bytes = sampledBytes[handler].sum();
+        long invoked = invocations[handler].sum();
+        return invoked == calls? bytes : (long) ((double) bytes * invoked / calls);
+    }
+
+    /**
+     * Gets the number of times a method was invoked, measured or not.
+     *
+     * @param  handler
+     *         The ID of the method.
+     *
+     * @return The number of invocations of the method.
+     */
+    public long getInvocations(int handler)
+    {
+        return invocations[handler].sum();
+    }
+
+    /**
+     * Gets the average number of bytes allocated by a single invocation of a method.
+     *
+     * @param  handler
+     *         The ID of the method.
+     *
+     * @return The average bytes allocated per invocation, or {@code 0} if none were measured.
+     */
+    public long getBytesPerInvocation(int handler)
+    {
+        long calls = sampledCalls[handler].sum();
+        return calls == 0? 0 : sampledBytes[handler].sum() / calls;
+    }
+
+    /**
+     * Starts measuring an invocation on the current thread, if it's sampled.
+     *
+     * @param  handler
+     *         The ID of the method about to be invoked.
+     *
+     * @return The bytes allocated by the current thread so far, or {@code -1}
+     *         if this invocation is not measured.
+     */
+    public long begin(int handler)
+    {
+        invocations[handler].increment();
+        // Random instead of a shared counter, so handlers don't skew each other's samples
+        if(THREADS == null || (every > 1 && ThreadLocalRandom.current().nextInt(every) != 0))
+            return -1;
+
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Finishes measuring an invocation on the current thread.
+     *
+     * @param  handler
+     *         The ID of the method invoked.
+     * @param  start
+     *         The value returned by {@link #begin(int)} before the invocation.
+     */
+    public void end(int handler, long start)
+    {
+        if(start < 0)
+            return;
+
+        long allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - start;
+        if(allocated < 0)
+            return;
+
+        sampledBytes[handler].add(allocated);
+        sampledCalls[handler].increment();
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder(name).append(": allocations");
+        for(int i = 0; i < handlers.length; i++)
+        {
+            builder.append(System.lineSeparator()).append("  ").append(handlers[i]).append(": ")
+                   .append(getAllocatedBytes(i)).append(" bytes, ")
+                   .append(getBytesPerInvocation(i)).append(" per invocation");
+        }
+        return builder.toString();
+    }
+
+    private static com.sun.management.ThreadMXBean findThreadMXBean()
+    {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if(!(bean instanceof com.sun.management.ThreadMXBean))
+                return null;
+
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if(!threads.isThreadAllocatedMemorySupported())
+                return null;
+            if(!threads.isThreadAllocatedMemoryEnabled())
+                threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        } catch(Throwable t) {
+            // Not a HotSpot JVM, or not permitted
+            return null;
+        }
+    }
+}
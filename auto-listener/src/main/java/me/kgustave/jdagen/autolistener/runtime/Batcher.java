@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Buffers events and flushes them in batches.
+ *
+ * <p>A batch is flushed when it reaches its maximum size, on the thread that added
+ * the last event, or when its maximum delay has passed since its first event was
+ * added, on an executor. The shared timer thread only hands delayed batches to the
+ * executor, so a slow flush never delays the timers of other batches.
+ *
+ * <p>Generated listeners buffer events for methods marked with
+ * {@link me.kgustave.jdagen.autolistener.Batch @Batch} using an instance of this.
+ *
+ * @param  <E>
+ *         The type of events batched.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class Batcher<E>
+{
+    private final int size;
+    private final long maxDelay;
+    private final Executor executor;
+    private final Consumer<List<E>> flusher;
+
+    private List<E> batch;
+    private long generation = 0;
+
+    /**
+     * Creates a new Batcher, that flushes delayed batches on a shared pool of threads.
+     *
+     * @param  size
+     *         The maximum number of events in a batch.
+     * @param  maxDelay
+     *         The maximum delay of a batch, in milliseconds.
+     * @param  flusher
+     *         The consumer batches are flushed to.
+     */
+    public Batcher(int size, long maxDelay, Consumer<List<E>> flusher)
+    {
+        this(size, maxDelay, DispatchScheduler.DELIVERY, flusher);
+    }
+
+    /**
+     * Creates a new Batcher.
+     *
+     * @param  size
+     *         The maximum number of events in a batch.
+     * @param  maxDelay
+     *         The maximum delay of a batch, in milliseconds.
+     * @param  executor
+     *         The executor delayed batches are flushed on.
+     * @param  flusher
+     *         The consumer batches are flushed to.
+     */
+    public Batcher(int size, long maxDelay, Executor executor, Consumer<List<E>> flusher)
+    {
+        this.size = Math.max(1, size);
+        this.maxDelay = maxDelay;
+        this.executor = executor;
+        this.flusher = flusher;
+        this.batch = new ArrayList<>(this.size);
+    }
+
+    /**
+     * Adds an event to the current batch, flushing it if it's full.
+     *
+     * @param  event
+     *         The event to add.
+     */
+    public void add(E event)
+    {
+        final List<E> full;
+        synchronized(this)
+        {
+            batch.add(event);
+
+            if(batch.size() == 1 && size > 1)
+            {
+                long scheduled = generation;
+                DispatchScheduler.TIMER.schedule(() -> flush(scheduled), maxDelay, TimeUnit.MILLISECONDS);
+            }
+
+            if(batch.size() < size)
+                return;
+
+            full = swap();
+        }
+
+        flusher.accept(full);
+    }
+
+    /**
+     * Flushes the current batch, if it has any events.
+     */
+    public void flush()
+    {
+        final List<E> pending;
+        synchronized(this)
+        {
+            if(batch.isEmpty())
+                return;
+
+            pending = swap();
+        }
+
+        flusher.accept(pending);
+    }
+
+    /**
+     * Flushes the current batch. Batchers hold no threads of their own, so this
+     * exists for symmetry with the other executors of generated listeners.
+     */
+    public void shutdown()
+    {
+        flush();
+    }
+
+    private void flush(long scheduled)
+    {
+        final List<E> pending;
+        synchronized(this)
+        {
+            // The batch this was scheduled for was already flushed
+            if(generation != scheduled || batch.isEmpty())
+                return;
+
+            pending = swap();
+        }
+
+        executor.execute(() -> flusher.accept(pending));
+    }
+
+    private List<E> swap()
+    {
+        List<E> full = batch;
+        batch = new ArrayList<>(size);
+        generation++;
+        return full;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of threads with a bounded queue, isolating a single listener method.
+ *
+ * <p>Tasks submitted while the queue is full are dropped and counted, rather than
+ * blocking the submitting thread or running on it.
+ *
+ * <p>Generated listeners invoke methods marked with {@link me.kgustave.jdagen.autolistener.Blocking @Blocking}
+ * or {@link me.kgustave.jdagen.autolistener.CpuBound @CpuBound} using an instance of this.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class Bulkhead implements Executor
+{
+    private final ThreadPoolExecutor pool;
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a new Bulkhead.
+     *
+     * @param  name
+     *         The name prefix of the threads of this bulkhead.
+     * @param  threads
+     *         The number of threads.
+     *         <br>If this is {@code 0} or less, the number of available processors is used.
+     * @param  queue
+     *         The maximum number of queued tasks.
+     */
+    public Bulkhead(String name, int threads, int queue)
+    {
+        if(threads <= 0)
+            threads = Runtime.getRuntime().availableProcessors();
+
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queue)), new DispatchThreadFactory(name),
+            (task, executor) -> rejected.increment());
+    }
+
+    @Override
+    public void execute(Runnable task)
+    {
+        pool.execute(task);
+    }
+
+    /**
+     * Gets the number of tasks waiting to be executed.
+     *
+     * @return The number of queued tasks.
+     */
+    public int getQueueDepth()
+    {
+        return pool.getQueue().size();
+    }
+
+    /**
+     * Gets the number of tasks dropped because the queue was full.
+     *
+     * @return The number of dropped tasks.
+     */
+    public long getRejected()
+    {
+        return rejected.sum();
+    }
+
+    /**
+     * Shuts down this bulkhead, letting already submitted tasks finish.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Holds the latest event for each key, and delivers all held events once a window of time
+ * has passed since the first of them was added.
+ *
+ * <p>Pending events are kept in an open addressing map keyed by primitive {@code long}s,
+ * so adding an event never boxes its key. The map swaps between two sets of arrays, which
+ * are cleared in place once their window is delivered, so besides scheduling each window
+ * it only allocates when the map grows, or when a window is taken while the previous one
+ * is still being delivered.
+ *
+ * <p>Key {@code 0}, which {@link Keys#of(net.dv8tion.jda.core.entities.ISnowflake)} returns
+ * for {@code null} entities, is held in a single slot like any other key, so only the latest
+ * of the events without an entity is delivered each window.
+ *
+ * <p>The shared timer thread only hands the pending events of a window to an executor,
+ * so a slow delivery never delays the timers of other coalescers.
+ *
+ * <p>Generated listeners coalesce events for methods marked with
+ * {@link me.kgustave.jdagen.autolistener.Coalesce @Coalesce} using an instance of this.
+ *
+ * @param  <E>
+ *         The type of events coalesced.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class Coalescer<E>
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final long window;
+    private final Executor executor;
+    private final Consumer<E> deliverer;
+
+    // Key 0 is the empty marker of the table, and is held on its own
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private Object[] events = new Object[INITIAL_CAPACITY];
+    private Object zero = null;
+    // The arrays of the last delivered window, null while it's being delivered
+    private long[] spareKeys = new long[INITIAL_CAPACITY];
+    private Object[] spareEvents = new Object[INITIAL_CAPACITY];
+    private int size = 0;
+    private long generation = 0;
+
+    /**
+     * Creates a new Coalescer, that delivers events on a shared pool of threads.
+     *
+     * @param  window
+     *         The time events are held for, in milliseconds.
+     * @param  deliverer
+     *         The consumer events are delivered to.
+     */
+    public Coalescer(long window, Consumer<E> deliverer)
+    {
+        this(window, DispatchScheduler.DELIVERY, deliverer);
+    }
+
+    /**
+     * Creates a new Coalescer.
+     *
+     * @param  window
+     *         The time events are held for, in milliseconds.
+     * @param  executor
+     *         The executor the events of each window are delivered on.
+     * @param  deliverer
+     *         The consumer events are delivered to.
+     */
+    public Coalescer(long window, Executor executor, Consumer<E> deliverer)
+    {
+        this.window = window;
+        this.executor = executor;
+        this.deliverer = deliverer;
+    }
+
+    /**
+     * Adds an event, replacing any pending event with the same key.
+     *
+     * @param  key
+     *         The key of the event.
+     * @param  event
+     *         The event to add.
+     */
+    public synchronized void add(long key, E event)
+    {
+        if(size == 0 && zero == null)
+        {
+            long scheduled = generation;
+            DispatchScheduler.TIMER.schedule(() -> deliver(scheduled), window, TimeUnit.MILLISECONDS);
+        }
+
+        if(key == 0)
+        {
+            zero = event;
+            return;
+        }
+
+        int mask = keys.length - 1;
+        int index = Keys.spread(key) & mask;
+        while(keys[index] != 0)
+        {
+            if(keys[index] == key)
+            {
+                events[index] = event;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        events[index] = event;
+
+        // Keep the table at most half full
+        if(++size * 2 > keys.length)
+            grow();
+    }
+
+    /**
+     * Delivers all pending events on the calling thread.
+     */
+    public void flush()
+    {
+        Runnable delivery = take(-1);
+        if(delivery != null)
+            delivery.run();
+    }
+
+    /**
+     * Delivers all pending events. Coalescers hold no threads of their own, so this
+     * exists for symmetry with the other executors of generated listeners.
+     */
+    public void shutdown()
+    {
+        flush();
+    }
+
+    private void deliver(long scheduled)
+    {
+        Runnable delivery = take(scheduled);
+        if(delivery != null)
+            executor.execute(delivery);
+    }
+
+    // Takes the pending events, returning the delivery of them or null if there were none
+    @SuppressWarnings("unchecked")
+    private Runnable take(long scheduled)
+    {
+        final long[] pendingKeys;
+        final Object[] pending;
+        final Object pendingZero;
+        synchronized(this)
+        {
+            // The events this was scheduled for were already delivered
+            if(scheduled >= 0 && generation != scheduled)
+                return null;
+            if(size == 0 && zero == null)
+                return null;
+
+            pendingKeys = keys;
+            pending = events;
+            pendingZero = zero;
+
+            if(spareKeys != null)
+            {
+                keys = spareKeys;
+                events = spareEvents;
+                spareKeys = null;
+                spareEvents = null;
+            }
+            else
+            {
+                keys = new long[INITIAL_CAPACITY];
+                events = new Object[INITIAL_CAPACITY];
+            }
+            zero = null;
+            size = 0;
+            generation++;
+        }
+
+        return () -> {
+            if(pendingZero != null)
+                deliverer.accept((E) pendingZero);
+
+            try {
+                for(Object event : pending)
+                {
+                    if(event != null)
+                        deliverer.accept((E) event);
+                }
+            } finally {
+                recycle(pendingKeys, pending);
+            }
+        };
+    }
+
+    // Clears the arrays of a delivered window, and keeps them for the next one
+    private void recycle(long[] oldKeys, Object[] oldEvents)
+    {
+        Arrays.fill(oldKeys, 0L);
+        Arrays.fill(oldEvents, null);
+        synchronized(this)
+        {
+            if(spareKeys == null)
+            {
+                spareKeys = oldKeys;
+                spareEvents = oldEvents;
+            }
+        }
+    }
+
+    private void grow()
+    {
+        long[] oldKeys = keys;
+        Object[] oldEvents = events;
+
+        keys = new long[oldKeys.length * 2];
+        events = new Object[oldKeys.length * 2];
+
+        int mask = keys.length - 1;
+        for(int i = 0; i < oldKeys.length; i++)
+        {
+            if(oldKeys[i] == 0)
+                continue;
+
+            int index = Keys.spread(oldKeys[i]) & mask;
+            while(keys[index] != 0)
+                index = (index + 1) & mask;
+
+            keys[index] = oldKeys[i];
+            events[index] = oldEvents[i];
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+/**
+ * Scans and parses the arguments of commands in place.
+ *
+ * <p>Generated listeners bind the typed parameters of methods marked with
+ * {@link me.kgustave.jdagen.autolistener.Command @Command} using these, walking
+ * the content of the message once with an index and parsing each token without
+ * splitting the content or creating substrings. The only exceptions are decimals
+ * that can't be parsed exactly in place, and strings, which are created once bound.
+ *
+ * <p>Parsing methods return a sentinel instead of throwing, {@link #INVALID} for
+ * integral values and {@link Double#NaN NaN} for decimals, when a token is missing
+ * or malformed.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class CommandArgs
+{
+    /**
+     * Returned by integral parsing methods for missing or malformed tokens.
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    // Doubles represent every integer up to 2^53 and power of ten up to 10^22 exactly
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Gets the index of the first non-whitespace character at or after an index.
+     *
+     * @param  content
+     *         The content.
+     * @param  index
+     *         The index to start at.
+     *
+     * @return The index of the next token, or the length of the content if there is none.
+     */
+    public static int skip(CharSequence content, int index)
+    {
+        int length = content.length();
+        while(index < length && Character.isWhitespace(content.charAt(index)))
+            index++;
+        return index;
+    }
+
+    /**
+     * Gets the index of the first whitespace character at or after an index.
+     *
+     * @param  content
+     *         The content.
+     * @param  index
+     *         The index of the start of the token.
+     *
+     * @return The index of the end of the token.
+     */
+    public static int end(CharSequence content, int index)
+    {
+        int length = content.length();
+        while(index < length && !Character.isWhitespace(content.charAt(index)))
+            index++;
+        return index;
+    }
+
+    /**
+     * Gets the rest of the content from an index, without trailing whitespace.
+     *
+     * @param  content
+     *         The content.
+     * @param  index
+     *         The index the rest starts at.
+     *
+     * @return The rest of the content, possibly empty.
+     */
+    public static String rest(CharSequence content, int index)
+    {
+        int end = content.length();
+        while(end > index && Character.isWhitespace(content.charAt(end - 1)))
+            end--;
+        return index >= end? "" : content.subSequence(index, end).toString();
+    }
+
+    /**
+     * Parses a token as a {@code long}.
+     * <br>Besides plain numbers, this accepts user, role and channel mentions,
+     * in which case the ID being mentioned is returned.
+     *
+     * @param  content
+     *         The content.
+     * @param  from
+     *         The start of the token.
+     * @param  to
+     *         The end of the token.
+     *
+     * @return The parsed value, or {@link #INVALID}.
+     */
+    public static long parseLong(CharSequence content, int from, int to)
+    {
+        if(from >= to)
+            return INVALID;
+
+        // Mentions: <@id>, <@!id>, <@&id> and <#id>
+        if(content.charAt(from) == '<')
+        {
+            if(to - from < 4 || content.charAt(to - 1) != '>')
+                return INVALID;
+
+            char type = content.charAt(from + 1);
+            if(type != '@' && type != '#')
+                return INVALID;
+
+            int start = from + 2;
+            if(type == '@' && (content.charAt(start) == '!' || content.charAt(start) == '&'))
+                start++;
+
+            return parseDigits(content, start, to - 1, false);
+        }
+
+        if(content.charAt(from) == '-')
+            return parseDigits(content, from + 1, to, true);
+
+        return parseDigits(content, from, to, false);
+    }
+
+    /**
+     * Parses a token as an {@code int}.
+     *
+     * @param  content
+     *         The content.
+     * @param  from
+     *         The start of the token.
+     * @param  to
+     *         The end of the token.
+     *
+     * @return The parsed value, or {@link #INVALID} if it is malformed or out of range.
+     */
+    public static long parseInt(CharSequence content, int from, int to)
+    {
+        if(from < to && content.charAt(from) == '<')
+            return INVALID;
+
+        long value = parseLong(content, from, to);
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE? INVALID : value;
+    }
+
+    /**
+     * Parses a token as a {@code double}.
+     * <br>Plain decimals with up to 15 significant digits, such as {@code -12.5}, are
+     * parsed exactly in place. Anything else, like exponents, is parsed by
+     * {@link Double#parseDouble(String)}.
+     *
+     * @param  content
+     *         The content.
+     * @param  from
+     *         The start of the token.
+     * @param  to
+     *         The end of the token.
+     *
+     * @return The parsed value, or {@link Double#NaN NaN}.
+     */
+    public static double parseDouble(CharSequence content, int from, int to)
+    {
+        if(from >= to)
+            return Double.NaN;
+
+        boolean negative = content.charAt(from) == '-';
+        int i = negative || content.charAt(from) == '+'? from + 1 : from;
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = -1;
+        for(; i < to; i++)
+        {
+            char c = content.charAt(i);
+            if(c == '.' && fraction < 0)
+            {
+                fraction = 0;
+                continue;
+            }
+
+            if(c < '0' || c > '9' || mantissa >= MAX_EXACT_MANTISSA / 10 || fraction == POWERS_OF_TEN.length - 1)
+                break;
+
+            mantissa = mantissa * 10 + (c - '0');
+            digits++;
+            if(fraction >= 0)
+                fraction++;
+        }
+
+        // Both the mantissa and the power of ten are exact, so dividing rounds correctly
+        if(i == to && digits > 0)
+        {
+            double value = fraction > 0? mantissa / POWERS_OF_TEN[fraction] : mantissa;
+            return negative? -value : value;
+        }
+
+        try {
+            return Double.parseDouble(content.subSequence(from, to).toString());
+        } catch(NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Parses a token as a duration, made up of numbers followed by a unit:
+     * {@code ms}, {@code s}, {@code m}, {@code h} or {@code d}. For example
+     * {@code 30s} or {@code 1h30m}.
+     *
+     * @param  content
+     *         The content.
+     * @param  from
+     *         The start of the token.
+     * @param  to
+     *         The end of the token.
+     *
+     * @return The duration in milliseconds, or {@link #INVALID}.
+     */
+    public static long parseDuration(CharSequence content, int from, int to)
+    {
+        if(from >= to)
+            return INVALID;
+
+        long total = 0;
+        int i = from;
+        while(i < to)
+        {
+            long amount = 0;
+            int digits = i;
+            while(i < to && content.charAt(i) >= '0' && content.charAt(i) <= '9')
+            {
+                amount = amount * 10 + (content.charAt(i++) - '0');
+                if(amount > Integer.MAX_VALUE)
+                    return INVALID;
+            }
+
+            if(i == digits || i == to)
+                return INVALID;
+
+            final long unit;
+            char c = content.charAt(i++);
+            if(c == 'm' && i < to && content.charAt(i) == 's')
+            {
+                i++;
+                unit = 1L;
+            }
+            else if(c == 's') unit = 1000L;
+            else if(c == 'm') unit = 60_000L;
+            else if(c == 'h') unit = 3_600_000L;
+            else if(c == 'd') unit = 86_400_000L;
+            else return INVALID;
+
+            total += amount * unit;
+        }
+
+        return total;
+    }
+
+    private static long parseDigits(CharSequence content, int from, int to, boolean negative)
+    {
+        if(from >= to)
+            return INVALID;
+
+        long value = 0;
+        for(int i = from; i < to; i++)
+        {
+            char c = content.charAt(i);
+            if(c < '0' || c > '9')
+                return INVALID;
+
+            // Overflow
+            if(value > (Long.MAX_VALUE - (c - '0')) / 10)
+                return INVALID;
+
+            value = value * 10 + (c - '0');
+        }
+
+        return negative? -value : value;
+    }
+
+    private CommandArgs() {}
+}
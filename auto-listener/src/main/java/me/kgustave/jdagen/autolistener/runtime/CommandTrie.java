@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+/**
+ * A trie of command names built at compile time and matched against the
+ * start of messages.
+ *
+ * <p>The trie is encoded in four strings, each character being a number:
+ * <ul>
+ *     <li>{@code offsets}: for each state, the index of its first edge,
+ *     followed by the total number of edges.</li>
+ *     <li>{@code labels}: for each edge, the character it matches. The edges of
+ *     a state are sorted by these.</li>
+ *     <li>{@code targets}: for each edge, the state it leads to.</li>
+ *     <li>{@code accepts}: for each state, the index of the key ending there plus one,
+ *     or {@code 0} if no key ends there.</li>
+ * </ul>
+ *
+ * Strings are used because they are stored compactly in the constant pool, where the
+ * equivalent array initializers would be compiled into large static initializers.
+ *
+ * <p>Generated listeners route methods marked with {@link me.kgustave.jdagen.autolistener.Command @Command}
+ * using an instance of this.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class CommandTrie
+{
+    private final String offsets;
+    private final String labels;
+    private final String targets;
+    private final String accepts;
+
+    /**
+     * Creates a new CommandTrie from its encoded form.
+     *
+     * @param  offsets
+     *         The index of the first edge of each state, followed by the number of edges.
+     * @param  labels
+     *         The character of each edge.
+     * @param  targets
+     *         The target state of each edge.
+     * @param  accepts
+     *         The index plus one of the key ending at each state, or {@code 0}.
+     */
+    public CommandTrie(String offsets, String labels, String targets, String accepts)
+    {
+        this.offsets = offsets;
+        this.labels = labels;
+        this.targets = targets;
+        this.accepts = accepts;
+    }
+
+    /**
+     * Matches the start of the content against the keys of this trie.
+     * <br>A key only matches if it's followed by whitespace or the end of the content.
+     *
+     * @param  content
+     *         The content to match.
+     *
+     * @return The index of the matching key, or {@code -1} if none matched.
+     */
+    public int match(CharSequence content)
+    {
+        long found = find(content);
+        return found < 0? -1 : (int) found;
+    }
+
+    /**
+     * Matches the start of the content against the keys of this trie, like
+     * {@link #match(CharSequence)}, and gets the index the matching key ends at.
+     * <br>As keys may contain whitespace, this is where the arguments following
+     * a command start.
+     *
+     * @param  content
+     *         The content to match.
+     *
+     * @return The index the matching key ends at, or {@code -1} if none matched.
+     */
+    public int end(CharSequence content)
+    {
+        long found = find(content);
+        return found < 0? -1 : (int) (found >>> 32);
+    }
+
+    // The end of the matching key in the high bits and its index in the low bits, or -1
+    private long find(CharSequence content)
+    {
+        int length = content.length();
+        int state = 0;
+        for(int i = 0; ; i++)
+        {
+            int accept = accepts.charAt(state);
+            if(accept != 0 && (i == length || Character.isWhitespace(content.charAt(i))))
+                return (long) i << 32 | (accept - 1);
+
+            if(i == length)
+                return -1;
+
+            state = next(state, content.charAt(i));
+            if(state < 0)
+                return -1;
+        }
+    }
+
+    private int next(int state, char c)
+    {
+        int low = offsets.charAt(state);
+        int high = offsets.charAt(state + 1) - 1;
+
+        while(low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            char label = labels.charAt(mid);
+
+            if(label < c)
+                low = mid + 1;
+            else if(label > c)
+                high = mid - 1;
+            else
+                return targets.charAt(mid);
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * The context of the listener method running on the current thread.
+ *
+ * <p>Generated listeners with {@link me.kgustave.jdagen.autolistener.AutoListener#trackReplies() reply tracking}
+ * enabled stamp each event with the time they received it, and make it available to the
+ * method handling it through this. Wrapping the success callback of a {@code RestAction}
+ * started by the method with {@link #onReply(Consumer)} records the time from the gateway
+ * to the REST API acknowledging the reply, including any time spent queued, both in the
+ * listener and in the rate-limiter:
+ *
+ * <pre><code>
+ *     public void onMessage(MessageReceivedEvent event)
+ *     {
+ *         event.getChannel().sendMessage("Pong!").queue(DispatchContext.onReply(message -&gt; {
+ *             // code
+ *         }));
+ *     }
+ * </code></pre>
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class DispatchContext
+{
+    private static final ThreadLocal<DispatchContext> CURRENT = ThreadLocal.withInitial(DispatchContext::new);
+
+    // One context per thread, holding a stack of the tracked methods running on it.
+    // Entering a method only allocates when the stack grows deeper than it has been.
+    private ListenerStats[] stats = new ListenerStats[4];
+    private int[] handlers = new int[4];
+    private long[] received = new long[4];
+    private int depth;
+
+    private DispatchContext() {}
+
+    /**
+     * Gets the context of the listener method running on the current thread.
+     *
+     * <p>The context is reused by every method running on the thread, so it should
+     * not be kept past the method that got it.
+     *
+     * @return The current context, or {@code null} if no tracked method is running.
+     */
+    public static DispatchContext current()
+    {
+        DispatchContext context = CURRENT.get();
+        return context.isTracked()? context : null;
+    }
+
+    /**
+     * Wraps a success callback so that it records the gateway-to-reply latency of the
+     * listener method running on the current thread before it's invoked.
+     * <br>If no tracked method is running, the callback is returned as is.
+     *
+     * @param  success
+     *         The callback to wrap, may be {@code null}.
+     * @param  <T>
+     *         The type the callback accepts.
+     *
+     * @return The wrapped callback.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Consumer<T> onReply(Consumer<? super T> success)
+    {
+        DispatchContext context = CURRENT.get();
+        if(!context.isTracked())
+            return (Consumer<T>) success;
+
+        // The callback runs later, likely on another thread, so it can't use the context
+        int top = context.depth - 1;
+        ListenerStats stats = context.stats[top];
+        int handler = context.handlers[top];
+        long received = context.received[top];
+        return value -> {
+            stats.recordReply(handler, System.nanoTime() - received);
+            if(success != null)
+                success.accept(value);
+        };
+    }
+
+    /**
+     * Enters the context of a listener method on the current thread.
+     *
+     * @param  stats
+     *         The statistics of the listener.
+     * @param  handler
+     *         The ID of the method.
+     * @param  received
+     *         The {@link System#nanoTime() time} the event was received, or {@code 0}
+     *         if it is unknown.
+     *
+     * @return The context of the current thread, to be exited with {@link #exit(DispatchContext)}.
+     */
+    public static DispatchContext enter(ListenerStats stats, int handler, long received)
+    {
+        DispatchContext context = CURRENT.get();
+        context.push(stats, handler, received);
+        return context;
+    }
+
+    /**
+     * Exits the context of a listener method on the current thread.
+     *
+     * @param  context
+     *         The context returned by {@link #enter(ListenerStats, int, long)}.
+     */
+    public static void exit(DispatchContext context)
+    {
+        context.pop();
+    }
+
+    /**
+     * Gets the {@link System#nanoTime() time} the event was received.
+     *
+     * @return The time the event was received.
+     */
+    public long getReceived()
+    {
+        return received[depth - 1];
+    }
+
+    /**
+     * Gets the time since the event was received, in nanoseconds.
+     *
+     * @return The time since the event was received.
+     */
+    public long getElapsedNanos()
+    {
+        return System.nanoTime() - getReceived();
+    }
+
+    /**
+     * Records the time since the event was received as the gateway-to-reply
+     * latency of the method.
+     */
+    public void replied()
+    {
+        stats[depth - 1].recordReply(handlers[depth - 1], getElapsedNanos());
+    }
+
+    private boolean isTracked()
+    {
+        return depth > 0 && received[depth - 1] != 0;
+    }
+
+    private void push(ListenerStats stats, int handler, long received)
+    {
+        if(depth == this.stats.length)
+        {
+            this.stats = Arrays.copyOf(this.stats, depth * 2);
+            this.handlers = Arrays.copyOf(this.handlers, depth * 2);
+            this.received = Arrays.copyOf(this.received, depth * 2);
+        }
+
+        this.stats[depth] = stats;
+        this.handlers[depth] = handler;
+        this.received[depth] = received;
+        depth++;
+    }
+
+    private void pop()
+    {
+        stats[--depth] = null;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the single timer thread shared by all generated listeners, and the
+ * pool that timed deliveries run on by default.
+ *
+ * <p>Nothing but scheduling runs on the timer thread, so that a slow handler
+ * can never hold back the timers of every other listener.
+ *
+ * @author Kaidan Gustave
+ */
+final class DispatchScheduler
+{
+    static final ScheduledThreadPoolExecutor TIMER;
+    static final ThreadPoolExecutor DELIVERY;
+
+    static {
+        TIMER = new ScheduledThreadPoolExecutor(1, new DispatchThreadFactory("JDA-Auto-Timer"));
+        TIMER.setRemoveOnCancelPolicy(true);
+
+        // Idle threads are kept for a minute, so regular deliveries reuse them
+        DELIVERY = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), new DispatchThreadFactory("JDA-Auto-Delivery"));
+    }
+
+    private DispatchScheduler() {}
+}
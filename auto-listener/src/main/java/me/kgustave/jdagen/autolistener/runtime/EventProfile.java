@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the events fired to a generated listener by their runtime class.
+ *
+ * <p>Generated listeners with {@link me.kgustave.jdagen.autolistener.AutoListener#profile() profiling}
+ * enabled record every event they receive here. The resulting profile can be {@link #store(Path) stored}
+ * and handed back to the processor using the {@code jdagen.autolistener.profile} option, which
+ * orders the generated dispatch branches hottest first.
+ *
+ * <p>The stored format is a {@link java.util.Properties Properties} file mapping the
+ * fully qualified name of each event class to the number of times it was fired.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class EventProfile
+{
+    private final ConcurrentHashMap<Class<?>, LongAdder> counts = new ConcurrentHashMap<>();
+
+    /**
+     * Records a single event of the provided type.
+     *
+     * @param  type
+     *         The runtime class of the fired event.
+     */
+    public void record(Class<?> type)
+    {
+        LongAdder count = counts.get(type);
+
+        // Only allocate the first time a type is seen
+        if(count == null)
+            count = counts.computeIfAbsent(type, t -> new LongAdder());
+
+        count.increment();
+    }
+
+    /**
+     * Gets a snapshot of the recorded counts, ordered from most to least frequent.
+     *
+     * @return A snapshot of the profile.
+     */
+    public Map<String, Long> snapshot()
+    {
+        List<Map.Entry<Class<?>, LongAdder>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<Class<?>, LongAdder> e) -> e.getValue().sum()).reversed());
+
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        for(Map.Entry<Class<?>, LongAdder> entry : entries)
+            snapshot.put(entry.getKey().getName(), entry.getValue().sum());
+        return snapshot;
+    }
+
+    /**
+     * Writes the profile to the provided {@link java.io.Writer Writer}.
+     *
+     * @param  writer
+     *         The Writer to write to.
+     *
+     * @throws IOException
+     *         If an I/O error occurs.
+     */
+    public void store(Writer writer) throws IOException
+    {
+        for(Map.Entry<String, Long> entry : snapshot().entrySet())
+        {
+            writer.write(entry.getKey() + "=" + entry.getValue());
+            writer.write(System.lineSeparator());
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes the profile to a file at the provided {@link java.nio.file.Path Path},
+     * replacing the file if it already exists.
+     *
+     * @param  path
+     *         The Path to write to.
+     *
+     * @throws IOException
+     *         If an I/O error occurs.
+     */
+    public void store(Path path) throws IOException
+    {
+        try(Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            store(writer);
+        }
+    }
+}
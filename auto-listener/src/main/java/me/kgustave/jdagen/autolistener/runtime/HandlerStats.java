@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Invocation statistics of a single listener method.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class HandlerStats
+{
+    private final String name;
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram replyLatency = new LatencyHistogram();
+
+    HandlerStats(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Gets the name of the method, including its parameter types.
+     *
+     * @return The name of the method.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Gets the number of times the method was invoked.
+     *
+     * @return The number of invocations.
+     */
+    public long getInvocations()
+    {
+        return invocations.sum();
+    }
+
+    /**
+     * Gets the total time spent invoking the method, in nanoseconds.
+     *
+     * @return The total time spent in the method.
+     */
+    public long getTotalNanos()
+    {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Gets the histogram of the latencies of the method.
+     *
+     * @return The latency histogram of the method.
+     */
+    public LatencyHistogram getLatency()
+    {
+        return latency;
+    }
+
+    /**
+     * Gets the histogram of the times from receiving an event to the REST API acknowledging
+     * a reply sent by the method, recorded by callbacks wrapped with
+     * {@link DispatchContext#onReply(java.util.function.Consumer) DispatchContext.onReply}.
+     *
+     * @return The gateway-to-reply latency histogram of the method.
+     */
+    public LatencyHistogram getReplyLatency()
+    {
+        return replyLatency;
+    }
+
+    void recordReply(long nanos)
+    {
+        replyLatency.record(nanos);
+    }
+
+    void record(long nanos)
+    {
+        invocations.increment();
+        totalNanos.add(nanos);
+        latency.record(nanos);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s: %d invocations, p50 %dns, p99 %dns", name, getInvocations(),
+            latency.getPercentile(50), latency.getPercentile(99));
+    }
+}
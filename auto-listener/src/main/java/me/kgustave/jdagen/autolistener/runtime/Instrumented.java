@@ -0,0 +1,34 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+/**
+ * Implemented by generated listeners with {@link me.kgustave.jdagen.autolistener.AutoListener#metrics() metrics}
+ * enabled, so that their statistics can be collected without knowing the generated class.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+@FunctionalInterface
+public interface Instrumented
+{
+    /**
+     * Gets the runtime statistics of the listener.
+     *
+     * @return The statistics of the listener.
+     */
+    ListenerStats getStats();
+}
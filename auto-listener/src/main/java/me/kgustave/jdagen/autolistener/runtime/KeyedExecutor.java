@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executes tasks on a set of striped serial queues.
+ *
+ * <p>Tasks submitted with the same key always run on the same stripe, in the order they
+ * were submitted, while tasks with different keys are spread across all stripes and
+ * run in parallel. Tasks submitted after this was shut down are dropped and counted.
+ *
+ * <p>Generated listeners using {@link me.kgustave.jdagen.autolistener.AutoListener.Execution#KEYED KEYED}
+ * execution hand every event to an instance of this.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class KeyedExecutor
+{
+    private final ThreadPoolExecutor[] stripes;
+    private final int mask;
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a new KeyedExecutor.
+     *
+     * @param  name
+     *         The name prefix of the threads of this executor.
+     * @param  stripes
+     *         The number of stripes, which is rounded up to the nearest power of two.
+     *         <br>If this is {@code 0} or less, the number of available processors is used.
+     */
+    public KeyedExecutor(String name, int stripes)
+    {
+        if(stripes <= 0)
+            stripes = Runtime.getRuntime().availableProcessors();
+
+        int size = Integer.highestOneBit(stripes);
+        if(size < stripes)
+            size <<= 1;
+
+        DispatchThreadFactory factory = new DispatchThreadFactory(name);
+
+        this.stripes = new ThreadPoolExecutor[size];
+        this.mask = size - 1;
+
+        for(int i = 0; i < size; i++)
+        {
+            this.stripes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), factory, (task, executor) -> rejected.increment());
+        }
+    }
+
+    /**
+     * Executes the task on the stripe of the provided key.
+     *
+     * @param  key
+     *         The key to order the task by.
+     * @param  task
+     *         The task to execute.
+     */
+    public void execute(long key, Runnable task)
+    {
+        stripes[Keys.spread(key) & mask].execute(task);
+    }
+
+    /**
+     * Gets the number of tasks waiting to be executed across all stripes.
+     *
+     * @return The number of queued tasks.
+     */
+    public int getQueueDepth()
+    {
+        int depth = 0;
+        for(ThreadPoolExecutor stripe : stripes)
+            depth += stripe.getQueue().size();
+        return depth;
+    }
+
+    /**
+     * Gets the number of tasks dropped because they were submitted after this was shut down.
+     *
+     * @return The number of dropped tasks.
+     */
+    public long getRejected()
+    {
+        return rejected.sum();
+    }
+
+    /**
+     * Shuts down all stripes, letting already submitted tasks finish.
+     */
+    public void shutdown()
+    {
+        for(ThreadPoolExecutor stripe : stripes)
+            stripe.shutdown();
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import net.dv8tion.jda.core.entities.ISnowflake;
+
+/**
+ * Resolves {@link me.kgustave.jdagen.autolistener.Key Key}s for generated listeners.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class Keys
+{
+    /**
+     * Gets the key of the provided entity.
+     *
+     * @param  entity
+     *         The entity, possibly {@code null}.
+     *
+     * @return The ID of the entity, or {@code 0} if it's {@code null}.
+     */
+    public static long of(ISnowflake entity)
+    {
+        return entity == null? 0L : entity.getIdLong();
+    }
+
+    /**
+     * Spreads the bits of a key so that snowflakes, whose low bits are mostly
+     * sequential, distribute evenly when masked.
+     *
+     * @param  key
+     *         The key to spread.
+     *
+     * @return The spread hash of the key.
+     */
+    public static int spread(long key)
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private Keys() {}
+}
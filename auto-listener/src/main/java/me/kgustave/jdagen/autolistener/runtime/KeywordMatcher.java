@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+/**
+ * An Aho-Corasick automaton built at compile time, that finds which sets
+ * of keywords occur in a text with a single scan.
+ *
+ * <p>The automaton is a trie of the keywords, in lower case, encoded in strings
+ * with each character being a number:
+ * <ul>
+ *     <li>{@code offsets}: for each state, the index of its first edge,
+ *     followed by the total number of edges.</li>
+ *     <li>{@code labels}: for each edge, the character it matches. The edges of
+ *     a state are sorted by these.</li>
+ *     <li>{@code targets}: for each edge, the state it leads to.</li>
+ *     <li>{@code failures}: for each state, the state of the longest proper suffix
+ *     of it that is also in the trie.</li>
+ *     <li>{@code outputs}: for each state, four characters holding a 64 bit mask of the
+ *     sets with a keyword ending there, including keywords ending at its failure states.
+ *     The most significant bits come first.</li>
+ * </ul>
+ *
+ * <p>Generated listeners route methods marked with {@link me.kgustave.jdagen.autolistener.Contains @Contains}
+ * using an instance of this, with each method being a set.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class KeywordMatcher
+{
+    private final String offsets;
+    private final String labels;
+    private final String targets;
+    private final String failures;
+    private final long[] outputs;
+
+    /**
+     * Creates a new KeywordMatcher from its encoded form.
+     *
+     * @param  offsets
+     *         The index of the first edge of each state, followed by the number of edges.
+     * @param  labels
+     *         The character of each edge.
+     * @param  targets
+     *         The target state of each edge.
+     * @param  failures
+     *         The failure state of each state.
+     * @param  outputs
+     *         The output mask of each state, four characters each.
+     */
+    public KeywordMatcher(String offsets, String labels, String targets, String failures, String outputs)
+    {
+        this.offsets = offsets;
+        this.labels = labels;
+        this.targets = targets;
+        this.failures = failures;
+        this.outputs = new long[outputs.length() / 4];
+
+        for(int i = 0; i < this.outputs.length; i++)
+        {
+            this.outputs[i] = (long) outputs.charAt(i * 4) << 48 | (long) outputs.charAt(i * 4 + 1) << 32 |
+                              (long) outputs.charAt(i * 4 + 2) << 16 | outputs.charAt(i * 4 + 3);
+        }
+    }
+
+    /**
+     * Scans the text for keywords.
+     *
+     * @param  text
+     *         The text to scan.
+     *
+     * @return A mask with the bit of each set that had a keyword found set.
+     */
+    public long match(CharSequence text)
+    {
+        long matched = 0L;
+        int state = 0;
+        for(int i = 0, length = text.length(); i < length; i++)
+        {
+            char c = Character.toLowerCase(text.charAt(i));
+
+            int next;
+            while((next = next(state, c)) < 0 && state != 0)
+                state = failures.charAt(state);
+
+            state = next < 0? 0 : next;
+            matched |= outputs[state];
+        }
+        return matched;
+    }
+
+    private int next(int state, char c)
+    {
+        int low = offsets.charAt(state);
+        int high = offsets.charAt(state + 1) - 1;
+
+        while(low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            char label = labels.charAt(mid);
+
+            if(label < c)
+                low = mid + 1;
+            else if(label > c)
+                high = mid - 1;
+            else
+                return targets.charAt(mid);
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-bucket, log-linear histogram of latencies in nanoseconds.
+ *
+ * <p>Every power of two is split into {@value #SUB_BUCKETS} linear sub-buckets, which bounds
+ * the relative error of any reported value to about 12.5% across the full range of a
+ * {@code long}. All buckets are allocated up front, so recording never allocates.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Records a single latency.
+     *
+     * @param  nanos
+     *         The latency in nanoseconds, negative values are recorded as {@code 0}.
+     */
+    public void record(long nanos)
+    {
+        nanos = Math.max(0, nanos);
+        counts.getAndIncrement(indexOf(nanos));
+        sum.add(nanos);
+    }
+
+    /**
+     * Gets the total number of recorded latencies.
+     *
+     * @return The number of recorded latencies.
+     */
+    public long getCount()
+    {
+        long count = 0;
+        for(int i = 0; i < BUCKETS; i++)
+            count += counts.get(i);
+        return count;
+    }
+
+    /**
+     * Gets the sum of all recorded latencies, in nanoseconds.
+     * <br>Unlike {@link #getPercentile(double) percentiles}, this is exact.
+     *
+     * @return The sum of the recorded latencies.
+     */
+    public long getSum()
+    {
+        return sum.sum();
+    }
+
+    /**
+     * Gets an estimate of the latency at the provided percentile.
+     *
+     * @param  percentile
+     *         The percentile, between {@code 0} and {@code 100}.
+     *
+     * @return The estimated latency in nanoseconds, or {@code 0} if nothing was recorded.
+     */
+    public long getPercentile(double percentile)
+    {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for(int i = 0; i < BUCKETS; i++)
+            total += (snapshot[i] = counts.get(i));
+
+        if(total == 0)
+            return 0;
+
+        long rank = (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total);
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++)
+        {
+            seen += snapshot[i];
+            if(seen >= Math.max(1, rank))
+                return upperBoundOf(i);
+        }
+
+        return upperBoundOf(BUCKETS - 1);
+    }
+
+    /**
+     * Gets the number of buckets of every histogram.
+     *
+     * @return The number of buckets.
+     */
+    public static int getBucketCount()
+    {
+        return BUCKETS;
+    }
+
+    /**
+     * Gets the number of latencies recorded in the bucket at the provided index.
+     *
+     * @param  bucket
+     *         The index of the bucket.
+     *
+     * @return The count of the bucket.
+     */
+    public long getBucket(int bucket)
+    {
+        return counts.get(bucket);
+    }
+
+    /**
+     * Gets the largest latency, in nanoseconds, recorded in the bucket at the provided index.
+     *
+     * @param  bucket
+     *         The index of the bucket.
+     *
+     * @return The upper bound of the bucket.
+     */
+    public static long upperBoundOf(int bucket)
+    {
+        if(bucket < SUB_BUCKETS)
+            return bucket;
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long lower = (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+
+        // The last bucket would overflow
+        return lower + width - 1 < lower? Long.MAX_VALUE : lower + width - 1;
+    }
+
+    static int indexOf(long value)
+    {
+        if(value < SUB_BUCKETS)
+            return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Runtime statistics of a generated listener.
+ *
+ * <p>Generated listeners with {@link me.kgustave.jdagen.autolistener.AutoListener#metrics() metrics}
+ * enabled count every event they receive, and time every invocation of their methods, using
+ * an instance of this, which is available from their generated {@code getStats()} method.
+ *
+ * <p>Recording never allocates, so this is safe to leave enabled in production.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class ListenerStats
+{
+    private final String name;
+    private final LongAdder eventsSeen = new LongAdder();
+    private final HandlerStats[] handlers;
+    private final Map<String, IntSupplier> queues = new LinkedHashMap<>();
+    private final Map<String, LongSupplier> rejections = new LinkedHashMap<>();
+
+    /**
+     * Creates a new ListenerStats.
+     *
+     * @param  name
+     *         The name of the listener.
+     * @param  handlers
+     *         The names of the methods of the listener, in the order of their IDs.
+     */
+    public ListenerStats(String name, String... handlers)
+    {
+        this.name = name;
+        this.handlers = new HandlerStats[handlers.length];
+        for(int i = 0; i < handlers.length; i++)
+            this.handlers[i] = new HandlerStats(handlers[i]);
+    }
+
+    /**
+     * Gets the name of the listener.
+     *
+     * @return The name of the listener.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Gets the number of events the listener received.
+     *
+     * @return The number of events received.
+     */
+    public long getEventsSeen()
+    {
+        return eventsSeen.sum();
+    }
+
+    /**
+     * Gets the statistics of every method of the listener.
+     *
+     * @return The statistics of every method.
+     */
+    public List<HandlerStats> getHandlers()
+    {
+        return Collections.unmodifiableList(Arrays.asList(handlers));
+    }
+
+    /**
+     * Gets the names of the queues of the listener, mapped to their current depths.
+     *
+     * @return The depths of the queues of the listener.
+     */
+    public Map<String, Integer> getQueueDepths()
+    {
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        queues.forEach((queue, depth) -> depths.put(queue, depth.getAsInt()));
+        return depths;
+    }
+
+    /**
+     * Registers a queue of the listener.
+     * <br>Queues are registered while the listener is being constructed.
+     *
+     * @param  name
+     *         The name of the queue.
+     * @param  depth
+     *         Supplies the current depth of the queue.
+     */
+    public void addQueue(String name, IntSupplier depth)
+    {
+        queues.put(name, depth);
+    }
+
+    /**
+     * Gets the names of the queues of the listener, mapped to the number of
+     * tasks they dropped because they were full or shut down.
+     *
+     * @return The number of tasks each queue of the listener dropped.
+     */
+    public Map<String, Long> getRejections()
+    {
+        Map<String, Long> rejected = new LinkedHashMap<>();
+        rejections.forEach((queue, count) -> rejected.put(queue, count.getAsLong()));
+        return rejected;
+    }
+
+    /**
+     * Registers a queue of the listener that drops tasks.
+     * <br>Queues are registered while the listener is being constructed.
+     *
+     * @param  name
+     *         The name of the queue.
+     * @param  rejected
+     *         Supplies the number of tasks the queue dropped.
+     */
+    public void addRejections(String name, LongSupplier rejected)
+    {
+        rejections.put(name, rejected);
+    }
+
+    /**
+     * Records that the listener received an event.
+     */
+    public void seen()
+    {
+        eventsSeen.increment();
+    }
+
+    /**
+     * Records a single invocation of a method.
+     *
+     * @param  handler
+     *         The ID of the method.
+     * @param  nanos
+     *         The time the invocation took, in nanoseconds.
+     */
+    public void record(int handler, long nanos)
+    {
+        handlers[handler].record(nanos);
+    }
+
+    /**
+     * Records the time from receiving an event to a reply of a method being acknowledged.
+     *
+     * @param  handler
+     *         The ID of the method.
+     * @param  nanos
+     *         The time from receiving the event to the reply, in nanoseconds.
+     */
+    public void recordReply(int handler, long nanos)
+    {
+        handlers[handler].recordReply(nanos);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder(name).append(": ").append(getEventsSeen()).append(" events");
+        for(HandlerStats handler : handlers)
+            builder.append(System.lineSeparator()).append("  ").append(handler);
+        return builder.toString();
+    }
+}
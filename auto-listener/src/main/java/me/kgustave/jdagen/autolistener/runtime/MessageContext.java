@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.Message;
+import net.dv8tion.jda.core.entities.User;
+import net.dv8tion.jda.core.events.Event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Values derived from the message of an event, computed lazily and shared between every
+ * method handling that event.
+ *
+ * <p>Methods of an {@link me.kgustave.jdagen.autolistener.AutoListener AutoListener} handling
+ * an event with a {@code getMessage()} accessor can opt in by declaring one of these as their
+ * second parameter. The generated listener then creates a single context for each event, so
+ * however many methods read its content or split it into words, that work is done once.
+ *
+ * <p>Each value is computed the first time it is asked for. When methods run concurrently a
+ * value may be computed more than once, but it is always the same value.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class MessageContext
+{
+    private final Event event;
+    private final Message message;
+
+    private String content;
+    private String lowerCaseContent;
+    private List<String> words;
+    private User author;
+    private Member member;
+    private Guild guild;
+
+    /**
+     * Creates a new MessageContext.
+     *
+     * @param  event
+     *         The event.
+     * @param  message
+     *         The message of the event.
+     */
+    public MessageContext(Event event, Message message)
+    {
+        this.event = event;
+        this.message = message;
+    }
+
+    /**
+     * Gets the event this context is for.
+     *
+     * @return The event.
+     */
+    public Event getEvent()
+    {
+        return event;
+    }
+
+    /**
+     * Gets the message of the event.
+     *
+     * @return The message.
+     */
+    public Message getMessage()
+    {
+        return message;
+    }
+
+    /**
+     * Gets the {@link Message#getContentRaw() raw content} of the message.
+     *
+     * @return The raw content.
+     */
+    public String getContent()
+    {
+        String content = this.content;
+        if(content == null)
+            this.content = content = message.getContentRaw();
+        return content;
+    }
+
+    /**
+     * Gets the raw content of the message in lower case.
+     *
+     * @return The raw content in lower case.
+     */
+    public String getLowerCaseContent()
+    {
+        String lowerCaseContent = this.lowerCaseContent;
+        if(lowerCaseContent == null)
+            this.lowerCaseContent = lowerCaseContent = getContent().toLowerCase();
+        return lowerCaseContent;
+    }
+
+    /**
+     * Gets the raw content of the message split on whitespace.
+     *
+     * @return An unmodifiable list of the words in the raw content.
+     */
+    public List<String> getWords()
+    {
+        List<String> words = this.words;
+        if(words == null)
+        {
+            String content = getContent();
+            List<String> split = new ArrayList<>();
+            for(int i = CommandArgs.skip(content, 0); i < content.length(); )
+            {
+                int end = CommandArgs.end(content, i);
+                split.add(content.substring(i, end));
+                i = CommandArgs.skip(content, end);
+            }
+            this.words = words = Collections.unmodifiableList(split);
+        }
+        return words;
+    }
+
+    /**
+     * Gets the author of the message.
+     *
+     * @return The author.
+     */
+    public User getAuthor()
+    {
+        User author = this.author;
+        if(author == null)
+            this.author = author = message.getAuthor();
+        return author;
+    }
+
+    /**
+     * Gets the author of the message as a member of its guild.
+     *
+     * @return The member, or {@code null} if the message was not sent in a guild.
+     */
+    public Member getMember()
+    {
+        Member member = this.member;
+        if(member == null)
+            this.member = member = message.getMember();
+        return member;
+    }
+
+    /**
+     * Gets the guild the message was sent in.
+     *
+     * @return The guild, or {@code null} if the message was not sent in a guild.
+     */
+    public Guild getGuild()
+    {
+        Guild guild = this.guild;
+        if(guild == null)
+            this.guild = guild = message.getGuild();
+        return guild;
+    }
+}
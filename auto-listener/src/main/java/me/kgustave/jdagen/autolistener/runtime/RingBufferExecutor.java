@@ -0,0 +1,339 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import me.kgustave.jdagen.autolistener.AutoListener;
+import net.dv8tion.jda.core.events.Event;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands events from the threads that fire them to dedicated consumer threads through a
+ * preallocated, lock-free ring buffer.
+ *
+ * <p>Every slot of the buffer has a sequence counter. Publishers claim a slot by advancing
+ * the shared tail sequence, fill it, and release it by advancing the slot's sequence, which
+ * consumers then claim the same way from the head. Publishing never allocates and never locks.
+ *
+ * <p>Each published event is handled by exactly one consumer, so events are only handled in
+ * the order they were published when there is a single consumer thread.
+ *
+ * <p>Generated listeners using {@link AutoListener.Execution#RING_BUFFER RING_BUFFER}
+ * execution publish every event to an instance of this.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class RingBufferExecutor
+{
+    private static final int SPIN_TRIES = 100;
+    private static final long PARK_NANOS = 100_000L;
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final Event[] events;
+    private final int[] handlers;
+    private final long[] received;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+
+    private final AutoListener.WaitStrategy waitStrategy;
+    private final AutoListener.Overflow overflow;
+    private final TimedHandler handler;
+    private final Thread[] consumers;
+
+    private volatile boolean running = true;
+
+    /**
+     * Creates a new RingBufferExecutor and starts its consumer threads.
+     *
+     * @param  name
+     *         The name prefix of the consumer threads.
+     * @param  bufferSize
+     *         The number of slots in the buffer, which is rounded up to the nearest power of two.
+     * @param  threads
+     *         The number of consumer threads.
+     *         <br>If this is {@code 0} or less, the number of available processors is used.
+     * @param  waitStrategy
+     *         How threads wait for the buffer to have events or free slots.
+     * @param  overflow
+     *         What publishing does when the buffer is full.
+     * @param  handler
+     *         The handler consumer threads invoke with each event.
+     */
+    public RingBufferExecutor(String name, int bufferSize, int threads,
+                              AutoListener.WaitStrategy waitStrategy, AutoListener.Overflow overflow,
+                              Handler handler)
+    {
+        this(name, bufferSize, threads, waitStrategy, overflow,
+            (TimedHandler) (id, event, received) -> handler.handle(id, event));
+    }
+
+    /**
+     * Creates a new RingBufferExecutor, that hands the time events were received along with them,
+     * and starts its consumer threads.
+     *
+     * @param  name
+     *         The name prefix of the consumer threads.
+     * @param  bufferSize
+     *         The number of slots in the buffer, which is rounded up to the nearest power of two.
+     * @param  threads
+     *         The number of consumer threads.
+     *         <br>If this is {@code 0} or less, the number of available processors is used.
+     * @param  waitStrategy
+     *         How threads wait for the buffer to have events or free slots.
+     * @param  overflow
+     *         What publishing does when the buffer is full.
+     * @param  handler
+     *         The handler consumer threads invoke with each event.
+     */
+    public RingBufferExecutor(String name, int bufferSize, int threads,
+                              AutoListener.WaitStrategy waitStrategy, AutoListener.Overflow overflow,
+                              TimedHandler handler)
+    {
+        int size = Integer.highestOneBit(Math.max(2, bufferSize));
+        if(size < bufferSize)
+            size <<= 1;
+
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        this.events = new Event[size];
+        this.handlers = new int[size];
+        this.received = new long[size];
+
+        // A slot is free for publishing once its sequence equals the tail
+        for(int i = 0; i < size; i++)
+            sequences.set(i, i);
+
+        this.waitStrategy = waitStrategy;
+        this.overflow = overflow;
+        this.handler = handler;
+
+        if(threads <= 0)
+            threads = Runtime.getRuntime().availableProcessors();
+
+        DispatchThreadFactory factory = new DispatchThreadFactory(name);
+        this.consumers = new Thread[threads];
+        for(int i = 0; i < threads; i++)
+        {
+            consumers[i] = factory.newThread(this::consume);
+            consumers[i].start();
+        }
+    }
+
+    /**
+     * Publishes an event for the handler with the provided ID.
+     *
+     * <p>If the buffer is full, this either waits for a free slot or drops
+     * the event, depending on the {@link AutoListener.Overflow Overflow} policy.
+     *
+     * @param  handler
+     *         The ID of the handler.
+     * @param  event
+     *         The event.
+     */
+    public void publish(int handler, Event event)
+    {
+        publish(handler, event, 0L);
+    }
+
+    /**
+     * Publishes an event for the handler with the provided ID, along with the
+     * {@link System#nanoTime() time} it was received.
+     *
+     * <p>If the buffer is full, this either waits for a free slot or drops
+     * the event, depending on the {@link AutoListener.Overflow Overflow} policy.
+     *
+     * @param  handler
+     *         The ID of the handler.
+     * @param  event
+     *         The event.
+     * @param  received
+     *         The time the event was received.
+     */
+    public void publish(int handler, Event event, long received)
+    {
+        // Consumers may have already stopped
+        if(!running)
+        {
+            dropped.increment();
+            return;
+        }
+
+        int tries = 0;
+        while(true)
+        {
+            long pos = tail.get();
+            int index = (int) pos & mask;
+            long seq = sequences.get(index);
+
+            if(seq == pos)
+            {
+                if(tail.compareAndSet(pos, pos + 1))
+                {
+                    events[index] = event;
+                    handlers[index] = handler;
+                    this.received[index] = received;
+                    sequences.lazySet(index, pos + 1);
+                    return;
+                }
+            }
+            else if(seq < pos)
+            {
+                // The buffer is full
+                if(overflow == AutoListener.Overflow.DROP || !running)
+                {
+                    dropped.increment();
+                    return;
+                }
+
+                tries = await(tries);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of events published but not yet taken by a consumer.
+     *
+     * @return The number of events in the buffer.
+     */
+    public int getQueueDepth()
+    {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * Gets the number of events dropped because the buffer was full, or this was shut down.
+     *
+     * @return The number of dropped events.
+     */
+    public long getDropped()
+    {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops the consumer threads once they have drained the buffer.
+     * <br>Events published afterwards are dropped.
+     */
+    public void shutdown()
+    {
+        running = false;
+    }
+
+    private void consume()
+    {
+        int tries = 0;
+        while(true)
+        {
+            long pos = head.get();
+            int index = (int) pos & mask;
+            long seq = sequences.get(index);
+
+            if(seq == pos + 1)
+            {
+                if(head.compareAndSet(pos, pos + 1))
+                {
+                    Event event = events[index];
+                    int id = handlers[index];
+                    long time = received[index];
+
+                    // Release the slot before handling, so a slow
+                    // handler doesn't hold back publishers.
+                    events[index] = null;
+                    sequences.lazySet(index, pos + mask + 1);
+                    tries = 0;
+
+                    try {
+                        handler.handle(id, event, time);
+                    } catch(Throwable t) {
+                        Thread current = Thread.currentThread();
+                        current.getUncaughtExceptionHandler().uncaughtException(current, t);
+                    }
+                }
+            }
+            else if(seq <= pos)
+            {
+                // The buffer is empty
+                if(!running)
+                    return;
+
+                tries = await(tries);
+            }
+        }
+    }
+
+    private int await(int tries)
+    {
+        switch(waitStrategy)
+        {
+            case BUSY_SPIN:
+                return tries;
+
+            case YIELD:
+                Thread.yield();
+                return tries;
+
+            default:
+                if(tries < SPIN_TRIES)
+                    return tries + 1;
+                LockSupport.parkNanos(PARK_NANOS);
+                return tries;
+        }
+    }
+
+    /**
+     * Handles events taken from a {@link RingBufferExecutor RingBufferExecutor}.
+     */
+    @FunctionalInterface
+    public interface Handler
+    {
+        /**
+         * Handles an event for the handler with the provided ID.
+         *
+         * @param  handler
+         *         The ID of the handler the event was published for.
+         * @param  event
+         *         The event.
+         */
+        void handle(int handler, Event event);
+    }
+
+    /**
+     * Handles events taken from a {@link RingBufferExecutor RingBufferExecutor},
+     * along with the time they were received.
+     */
+    @FunctionalInterface
+    public interface TimedHandler
+    {
+        /**
+         * Handles an event for the handler with the provided ID.
+         *
+         * @param  handler
+         *         The ID of the handler the event was published for.
+         * @param  event
+         *         The event.
+         * @param  received
+         *         The {@link System#nanoTime() time} the event was received.
+         */
+        void handle(int handler, Event event, long received);
+    }
+}
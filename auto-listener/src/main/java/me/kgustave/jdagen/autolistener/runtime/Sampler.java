@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which events a method marked with {@link me.kgustave.jdagen.autolistener.Sample @Sample}
+ * is invoked for.
+ *
+ * <p>Rate samplers draw from the {@link ThreadLocalRandom ThreadLocalRandom} of the calling
+ * thread, and counting samplers keep a count for each thread, so threads firing events never
+ * contend with each other, and sampling never allocates after the first event on each thread.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class Sampler
+{
+    private static final double UNIT = 1L << 53;
+
+    private final long threshold; // Random 53-bit values below this are sampled
+    private final int every;
+    private final ThreadLocal<int[]> counts;
+
+    private Sampler(long threshold, int every)
+    {
+        this.threshold = threshold;
+        this.every = every;
+        this.counts = every > 1? ThreadLocal.withInitial(() -> new int[1]) : null;
+    }
+
+    /**
+     * Creates a Sampler that samples each event with a probability.
+     *
+     * @param  rate
+     *         The probability, greater than {@code 0} and at most {@code 1}.
+     *
+     * @return A new Sampler.
+     *
+     * @throws IllegalArgumentException
+     *         If the rate is not greater than {@code 0} and at most {@code 1}.
+     */
+    public static Sampler ofRate(double rate)
+    {
+        if(!(rate > 0 && rate <= 1))
+            throw new IllegalArgumentException("Rate must be greater than 0 and at most 1!");
+        return new Sampler((long) (rate * UNIT), 1);
+    }
+
+    /**
+     * Creates a Sampler that samples every Nth event on each thread.
+     *
+     * @param  every
+     *         The number of events per sampled event.
+     *
+     * @return A new Sampler.
+     *
+     * @throws IllegalArgumentException
+     *         If the number is less than {@code 1}.
+     */
+    public static Sampler everyN(int every)
+    {
+        if(every < 1)
+            throw new IllegalArgumentException("Every must be at least 1!");
+        return new Sampler(1L << 53, every);
+    }
+
+    /**
+     * Decides if the current event is sampled.
+     *
+     * @return {@code true} if the current event is sampled.
+     */
+    public boolean sample()
+    {
+        if(counts != null)
+        {
+            int[] count = counts.get();
+            if(++count[0] < every)
+                return false;
+
+            count[0] = 0;
+            return true;
+        }
+
+        return threshold >= 1L << 53 || ThreadLocalRandom.current().nextLong() >>> 11 < threshold;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import net.dv8tion.jda.core.events.Event;
+
+/**
+ * Implemented by generated listeners when a listener hub is generated, so that the hub
+ * can find the handlers of an event once for each type of event, and pass events
+ * straight to them.
+ *
+ * <p>The handled types of a listener are numbered from {@code 1}, and the slot of an
+ * event is the number of the most specific of them the event is an instance of.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public interface SlottedListener extends TypedListener
+{
+    /**
+     * Gets the slot of events of a type.
+     *
+     * @param  type
+     *         The type of events.
+     *
+     * @return The slot of the events, or {@code 0} if the listener doesn't handle them.
+     */
+    int getSlot(Class<?> type);
+
+    /**
+     * Passes an event straight to the handlers of a slot.
+     * <br>The slot must be the one {@link #getSlot(Class)} returns for the type of the event.
+     *
+     * @param  slot
+     *         The slot of the event.
+     * @param  event
+     *         The event.
+     */
+    void onEvent(int slot, Event event);
+}
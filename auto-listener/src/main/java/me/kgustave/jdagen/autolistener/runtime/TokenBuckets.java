@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token buckets for a bounded number of {@code long} keys.
+ *
+ * <p>Each bucket is stored as a single timestamp, using the generic cell rate algorithm,
+ * which is equivalent to a token bucket: the timestamp moves forward by the time it takes
+ * to refill one permit each time one is taken, and a permit can be taken as long as the
+ * timestamp is less than a full period ahead of now. A bucket whose timestamp has passed
+ * is full, and its slot can be reused for another key.
+ *
+ * <p>Buckets are kept in an open addressing table of a fixed size, and each key is only
+ * ever looked for in a small window of slots. When no slot in the window is free, the
+ * fullest bucket in it is replaced, so memory stays bounded however many keys there are.
+ *
+ * <p>Generated listeners throttle methods marked with
+ * {@link me.kgustave.jdagen.autolistener.Throttle @Throttle} using an instance of this.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class TokenBuckets
+{
+    private static final int PROBES = 8;
+
+    private final long interval; // Nanoseconds to refill a single permit
+    private final long tolerance; // How far ahead of now a bucket can be and still have a permit
+    private final int mask;
+
+    // Key 0 is the empty marker of the table, and is held on its own
+    private final long[] keys;
+    private final long[] times;
+    private long zeroTime;
+
+    /**
+     * Creates new TokenBuckets.
+     *
+     * @param  permits
+     *         The number of permits of each bucket.
+     * @param  period
+     *         The time it takes to refill an empty bucket, in milliseconds.
+     * @param  capacity
+     *         The maximum number of buckets, which is rounded up to the nearest power of two.
+     *
+     * @throws IllegalArgumentException
+     *         If the permits, period or capacity are less than {@code 1}.
+     */
+    public TokenBuckets(int permits, long period, int capacity)
+    {
+        if(permits < 1 || period < 1 || capacity < 1)
+            throw new IllegalArgumentException("Permits, period and capacity must be at least 1!");
+
+        long periodNanos = TimeUnit.MILLISECONDS.toNanos(period);
+        this.interval = Math.max(1, periodNanos / permits);
+        this.tolerance = periodNanos - interval;
+
+        int size = Integer.highestOneBit(Math.max(PROBES, capacity));
+        if(size < capacity)
+            size <<= 1;
+
+        this.mask = size - 1;
+        this.keys = new long[size];
+        this.times = new long[size];
+        this.zeroTime = Long.MIN_VALUE;
+    }
+
+    /**
+     * Takes a permit from the bucket of a key, if it has one.
+     *
+     * @param  key
+     *         The key.
+     *
+     * @return {@code true} if a permit was taken.
+     */
+    public boolean tryAcquire(long key)
+    {
+        long now = System.nanoTime();
+
+        synchronized(this)
+        {
+            if(key == 0)
+            {
+                long next = take(zeroTime, now);
+                if(next == Long.MIN_VALUE)
+                    return false;
+                zeroTime = next;
+                return true;
+            }
+
+            int start = Keys.spread(key) & mask;
+            int free = -1;
+            int fullest = start;
+            for(int i = 0; i < PROBES; i++)
+            {
+                int index = (start + i) & mask;
+                if(keys[index] == key)
+                {
+                    long next = take(times[index], now);
+                    if(next == Long.MIN_VALUE)
+                        return false;
+                    times[index] = next;
+                    return true;
+                }
+
+                // Empty slots, and buckets that have refilled, can be reused
+                if(free < 0 && (keys[index] == 0 || times[index] - now <= 0))
+                    free = index;
+                if(times[index] - times[fullest] < 0)
+                    fullest = index;
+            }
+
+            // A new key starts with a full bucket, so it always has a permit
+            int index = free >= 0? free : fullest;
+            keys[index] = key;
+            times[index] = now + interval;
+            return true;
+        }
+    }
+
+    // Gets the next time of a bucket after taking a permit, or MIN_VALUE if it has none
+    private long take(long time, long now)
+    {
+        if(time == Long.MIN_VALUE || time - now < 0)
+            time = now;
+
+        if(time - now > tolerance)
+            return Long.MIN_VALUE;
+
+        return time + interval;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import net.dv8tion.jda.core.events.Event;
+import net.dv8tion.jda.core.hooks.EventListener;
+import net.dv8tion.jda.core.hooks.IEventManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An {@link IEventManager IEventManager} that indexes {@link TypedListener TypedListeners},
+ * such as generated listeners, by the types of events they handle.
+ *
+ * <pre><code>
+ *     new JDABuilder(AccountType.BOT).setEventManager(new TypedEventManager())
+ * </code></pre>
+ *
+ * Handling an event looks up the listeners for its type, which is only resolved the first
+ * time an event of that type is handled, and calls each of them in the order they were
+ * registered. Listeners that handle none of its types are never called.
+ * <br>Other {@link EventListener EventListeners} can be registered as well, and are
+ * called for every event.
+ *
+ * <p>Registered listeners are kept in an immutable snapshot that is replaced whenever one
+ * is registered or unregistered, so handling events never locks, and is never affected by
+ * listeners being registered or unregistered at the same time.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class TypedEventManager implements IEventManager
+{
+    private volatile Snapshot snapshot = new Snapshot(new EventListener[0]);
+
+    @Override
+    public void register(Object listener)
+    {
+        if(!(listener instanceof EventListener))
+            throw new IllegalArgumentException("Listener must implement EventListener!");
+
+        synchronized(this)
+        {
+            EventListener[] listeners = snapshot.listeners;
+            EventListener[] registered = Arrays.copyOf(listeners, listeners.length + 1);
+            registered[listeners.length] = (EventListener) listener;
+            snapshot = new Snapshot(registered);
+        }
+    }
+
+    @Override
+    public void unregister(Object listener)
+    {
+        synchronized(this)
+        {
+            EventListener[] listeners = snapshot.listeners;
+            for(int i = 0; i < listeners.length; i++)
+            {
+                if(listeners[i] != listener)
+                    continue;
+
+                EventListener[] remaining = new EventListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, remaining, 0, i);
+                System.arraycopy(listeners, i + 1, remaining, i, listeners.length - i - 1);
+                snapshot = new Snapshot(remaining);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void handle(Event event)
+    {
+        for(EventListener listener : snapshot.interested.get(event.getClass()))
+        {
+            try {
+                listener.onEvent(event);
+            } catch(Throwable t) {
+                Thread current = Thread.currentThread();
+                current.getUncaughtExceptionHandler().uncaughtException(current, t);
+            }
+        }
+    }
+
+    @Override
+    public List<Object> getRegisteredListeners()
+    {
+        return Collections.unmodifiableList(Arrays.asList((Object[]) snapshot.listeners));
+    }
+
+    private static final class Snapshot
+    {
+        private final EventListener[] listeners;
+        private final Class<?>[][] eventTypes; // null for listeners that handle everything
+
+        // Resolved once for each type of event, per snapshot
+        private final ClassValue<EventListener[]> interested = new ClassValue<EventListener[]>()
+        {
+            @Override
+            protected EventListener[] computeValue(Class<?> type)
+            {
+                List<EventListener> found = new ArrayList<>();
+                for(int i = 0; i < listeners.length; i++)
+                {
+                    if(handles(eventTypes[i], type))
+                        found.add(listeners[i]);
+                }
+                return found.toArray(new EventListener[found.size()]);
+            }
+        };
+
+        private Snapshot(EventListener[] listeners)
+        {
+            this.listeners = listeners;
+            this.eventTypes = new Class<?>[listeners.length][];
+            for(int i = 0; i < listeners.length; i++)
+            {
+                if(listeners[i] instanceof TypedListener)
+                    eventTypes[i] = ((TypedListener) listeners[i]).getEventTypes();
+            }
+        }
+
+        private static boolean handles(Class<?>[] eventTypes, Class<?> type)
+        {
+            if(eventTypes == null)
+                return true;
+
+            for(Class<?> eventType : eventTypes)
+            {
+                if(eventType.isAssignableFrom(type))
+                    return true;
+            }
+            return false;
+        }
+    }
+}
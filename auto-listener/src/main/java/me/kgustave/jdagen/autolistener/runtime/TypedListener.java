@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import net.dv8tion.jda.core.hooks.EventListener;
+
+/**
+ * Implemented by generated listeners, so that the types of events they handle,
+ * which are known when they are generated, can be used to index them.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ *
+ * @see    TypedEventManager
+ */
+public interface TypedListener extends EventListener
+{
+    /**
+     * Gets the types of events the listener handles.
+     * <br>Events of subtypes of these are handled as well.
+     *
+     * @return The types of events the listener handles.
+     */
+    Class<?>[] getEventTypes();
+}
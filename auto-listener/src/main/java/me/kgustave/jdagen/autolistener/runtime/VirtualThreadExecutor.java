@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executes each task on its own virtual thread when running on JDK 21 or newer,
+ * or on a bounded pool of platform threads otherwise.
+ *
+ * <p>If a maximum concurrency is set, tasks wait for a permit before running, which
+ * bounds the number of tasks running at once without blocking the submitting thread.
+ *
+ * <p>Tasks submitted after this is shut down are dropped and counted.
+ *
+ * <p>Generated listeners using {@link me.kgustave.jdagen.autolistener.AutoListener.Execution#VIRTUAL VIRTUAL}
+ * execution hand every event to an instance of this.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class VirtualThreadExecutor implements Executor
+{
+    private final ExecutorService virtual;
+    private final ThreadPoolExecutor fallback;
+    private final Semaphore permits;
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile boolean shutdown = false;
+
+    /**
+     * Creates a new VirtualThreadExecutor.
+     *
+     * @param  name
+     *         The name prefix of the threads of this executor.
+     * @param  fallbackThreads
+     *         The number of platform threads to use when virtual threads are not available.
+     *         <br>If this is {@code 0} or less, the number of available processors is used.
+     * @param  maxConcurrency
+     *         The maximum number of tasks running at once, or {@code 0} or less for no limit.
+     */
+    public VirtualThreadExecutor(String name, int fallbackThreads, int maxConcurrency)
+    {
+        this.virtual = createVirtualExecutor(name);
+        this.permits = maxConcurrency > 0? new Semaphore(maxConcurrency) : null;
+
+        if(virtual == null)
+        {
+            if(fallbackThreads <= 0)
+                fallbackThreads = Runtime.getRuntime().availableProcessors();
+
+            this.fallback = new ThreadPoolExecutor(fallbackThreads, fallbackThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new DispatchThreadFactory(name));
+        }
+        else
+        {
+            this.fallback = null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable task)
+    {
+        if(shutdown)
+        {
+            rejected.increment();
+            return;
+        }
+
+        Runnable run = permits == null? task : () -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        };
+
+        try {
+            if(virtual != null)
+                virtual.execute(run);
+            else
+                fallback.execute(run);
+        } catch(RejectedExecutionException e) {
+            // Shut down while this was being submitted
+            rejected.increment();
+        }
+    }
+
+    /**
+     * Whether or not tasks are executed on virtual threads.
+     *
+     * @return {@code true} if tasks are executed on virtual threads.
+     */
+    public boolean isVirtual()
+    {
+        return virtual != null;
+    }
+
+    /**
+     * Gets the number of tasks waiting to be executed, either queued
+     * for a platform thread or waiting for a permit.
+     *
+     * @return The number of waiting tasks.
+     */
+    public int getQueueDepth()
+    {
+        int depth = permits == null? 0 : permits.getQueueLength();
+        if(fallback != null)
+            depth += fallback.getQueue().size();
+        return depth;
+    }
+
+    /**
+     * Gets the number of tasks dropped because they were submitted after this was shut down.
+     *
+     * @return The number of dropped tasks.
+     */
+    public long getRejected()
+    {
+        return rejected.sum();
+    }
+
+    /**
+     * Shuts down this executor, letting already submitted tasks finish.
+     * <br>Tasks submitted afterwards are dropped.
+     */
+    public void shutdown()
+    {
+        shutdown = true;
+
+        if(virtual != null)
+            virtual.shutdown();
+        else
+            fallback.shutdown();
+    }
+
+    private static ExecutorService createVirtualExecutor(String name)
+    {
+        // Compiled for Java 8, so Thread.ofVirtual() and Executors.newThreadPerTaskExecutor()
+        // can only be reached reflectively. The executor they create is a plain ExecutorService.
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Method naming = builderClass.getMethod("name", String.class, long.class);
+            Method factory = builderClass.getMethod("factory");
+            Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+
+            Object builder = naming.invoke(ofVirtual.invoke(null), name + "-", 1L);
+            return (ExecutorService) perTask.invoke(null, factory.invoke(builder));
+        } catch(ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Watches for invocations of listener methods that run over their time budget.
+ *
+ * <p>Each invocation claims one of a fixed number of slots for as long as it runs, with
+ * a compare-and-set among a few slots picked by the ID of its thread, and records its
+ * start there. Slots are allocated once, and nothing is kept per thread, so threads that
+ * only handle a single event, like virtual threads, cost no more than long lived ones.
+ * The shared timer thread scans the slots, and when an invocation runs over budget, it
+ * samples the stack of the thread running it a few times and {@link Reporter reports} it.
+ *
+ * <p>When every slot an invocation could claim is taken, it's not watched, and counted
+ * in {@link #getUnwatched()} instead.
+ *
+ * <p>Generated listeners with a {@link me.kgustave.jdagen.autolistener.AutoListener#watchdog() watchdog}
+ * watch their methods using an instance of this, which is available from their generated
+ * {@code getWatchdog()} method.
+ *
+ * @since  1.0
+ * @author Kaidan Gustave
+ */
+public final class Watchdog
+{
+    private static final int SAMPLES = 3;
+    private static final int SLOTS = 256; // Power of 2
+    private static final int PROBES = 8;
+    private static final long MIN_PERIOD = 10;
+    private static final long MAX_PERIOD = 1000;
+
+    private static volatile Reporter reporter = Watchdog::print;
+
+    private final String name;
+    private final String[] handlers;
+    private final long[] budgets;
+    private final AtomicReferenceArray<Thread> owners = new AtomicReferenceArray<>(SLOTS);
+    private final Call[] calls = new Call[SLOTS];
+    private final LongAdder unwatched = new LongAdder();
+    private final ScheduledFuture<?> scan;
+
+    /**
+     * Creates a new Watchdog.
+     *
+     * @param  name
+     *         The name of the listener.
+     * @param  handlers
+     *         The names of the methods of the listener, in the order of their IDs.
+     * @param  budgets
+     *         The time budgets of the methods of the listener, in milliseconds,
+     *         in the order of their IDs.
+     */
+    public Watchdog(String name, String[] handlers, long[] budgets)
+    {
+        this.name = name;
+        this.handlers = handlers;
+        this.budgets = new long[budgets.length];
+        for(int i = 0; i < SLOTS; i++)
+            calls[i] = new Call();
+
+        long shortest = MAX_PERIOD * 4;
+        for(int i = 0; i < budgets.length; i++)
+        {
+            this.budgets[i] = TimeUnit.MILLISECONDS.toNanos(budgets[i]);
+            shortest = Math.min(shortest, budgets[i]);
+        }
+
+        // Scan often enough to take every sample within about a budget
+        long period = Math.max(MIN_PERIOD, Math.min(MAX_PERIOD, shortest / 4));
+        this.scan = DispatchScheduler.TIMER.scheduleWithFixedDelay(this::scan, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets the Reporter that all watchdogs report slow invocations to.
+     * <br>By default, slow invocations are printed to {@link System#err}.
+     *
+     * @param  reporter
+     *         The Reporter to use.
+     */
+    public static void setReporter(Reporter reporter)
+    {
+        if(reporter == null)
+            throw new IllegalArgumentException("Reporter cannot be null!");
+        Watchdog.reporter = reporter;
+    }
+
+    /**
+     * Gets the number of invocations that weren't watched, because all the slots
+     * they could be recorded in were taken by other invocations.
+     *
+     * @return The number of unwatched invocations.
+     */
+    public long getUnwatched()
+    {
+        return unwatched.sum();
+    }
+
+    /**
+     * Records the start of an invocation on the current thread.
+     * <br>Invocations nested in another on the same thread are timed as part of it.
+     *
+     * @param  handler
+     *         The ID of the method invoked.
+     * @param  event
+     *         The event the method is invoked with.
+     *
+     * @return The slot the invocation is recorded in, to pass to {@link #end(int)},
+     *         or {@code -1} if it's not watched on its own.
+     */
+    public int begin(int handler, Object event)
+    {
+        Thread thread = Thread.currentThread();
+        int home = Keys.spread(thread.getId());
+
+        // Invocations only ever claim one of these slots, so an outer invocation
+        // on the same thread is always found among them
+        for(int i = 0; i < PROBES; i++)
+        {
+            if(owners.get((home + i) & (SLOTS - 1)) == thread)
+                return -1;
+        }
+
+        for(int i = 0; i < PROBES; i++)
+        {
+            int slot = (home + i) & (SLOTS - 1);
+            if(owners.get(slot) == null && owners.compareAndSet(slot, null, thread))
+            {
+                Call current = calls[slot];
+                current.handler = handler;
+                current.eventType = event instanceof MessageContext? ((MessageContext) event).getEvent().getClass() : event.getClass();
+                current.start = System.nanoTime(); // Published last
+                return slot;
+            }
+        }
+
+        unwatched.increment();
+        return -1;
+    }
+
+    /**
+     * Records the end of an invocation.
+     *
+     * @param  slot
+     *         The value returned by {@link #begin(int, Object)} for the invocation.
+     */
+    public void end(int slot)
+    {
+        if(slot < 0)
+            return;
+
+        calls[slot].start = 0;
+        owners.set(slot, null);
+    }
+
+    /**
+     * Stops watching for slow invocations.
+     */
+    public void shutdown()
+    {
+        scan.cancel(false);
+    }
+
+    private void scan()
+    {
+        long now = System.nanoTime();
+        for(int slot = 0; slot < SLOTS; slot++)
+        {
+            Call watched = calls[slot];
+            long start = watched.start;
+
+            // The invocation being sampled ended before all the samples were taken
+            if(watched.samples != null && start != watched.sampled)
+                report(watched, now);
+
+            if(start == 0 || start == watched.reported)
+                continue;
+
+            Thread thread = owners.get(slot);
+            int handler = watched.handler;
+            Class<?> eventType = watched.eventType;
+
+            // The slot was released or claimed again while it was read
+            if(thread == null || watched.start != start || now - start <= budgets[handler])
+                continue;
+
+            if(watched.samples == null)
+            {
+                watched.samples = new ArrayList<>(SAMPLES);
+                watched.sampled = start;
+                watched.sampledThread = thread;
+                watched.sampledHandler = handler;
+                watched.sampledEventType = eventType;
+            }
+
+            StackTraceElement[] stack = thread.getStackTrace();
+
+            // Only keep the sample if it's still of the same invocation
+            if(watched.start == start)
+                watched.samples.add(stack);
+
+            if(watched.samples.size() >= SAMPLES)
+                report(watched, now);
+        }
+    }
+
+    private void report(Call watched, long now)
+    {
+        List<StackTraceElement[]> samples = watched.samples;
+        watched.reported = watched.sampled;
+        watched.samples = null;
+
+        // Every sample was taken after the invocation had already ended
+        if(samples.isEmpty())
+            return;
+
+        Report report = new Report(name, handlers[watched.sampledHandler], watched.sampledEventType,
+            watched.sampledThread.getName(), TimeUnit.NANOSECONDS.toMillis(now - watched.sampled), samples);
+        watched.sampledThread = null;
+
+        try {
+            reporter.report(report);
+        } catch(Throwable ignored) {
+            // Reporting must never stop the watchdog
+        }
+    }
+
+    private static void print(Report report)
+    {
+        StringBuilder builder = new StringBuilder().append(report);
+        List<StackTraceElement[]> samples = report.getSamples();
+        for(int i = 0; i < samples.size(); i++)
+        {
+            builder.append(System.lineSeparator()).append("  Sample ").append(i + 1).append(':');
+            for(StackTraceElement element : samples.get(i))
+                builder.append(System.lineSeparator()).append("    at ").append(element);
+        }
+        System.err.println(builder);
+    }
+
+    private static final class Call
+    {
+        // Written by the thread that owns the slot
+        int handler;
+        Class<?> eventType;
+        volatile long start = 0;
+
+        // Written by the timer thread
+        long reported = 0;
+        long sampled;
+        Thread sampledThread;
+        int sampledHandler;
+        Class<?> sampledEventType;
+        List<StackTraceElement[]> samples;
+    }
+
+    /**
+     * Receives invocations that ran over their time budget.
+     */
+    @FunctionalInterface
+    public interface Reporter
+    {
+        /**
+         * Reports an invocation that ran over its time budget.
+         *
+         * @param  report
+         *         The report of the invocation.
+         */
+        void report(Report report);
+    }
+
+    /**
+     * An invocation that ran over its time budget.
+     */
+    public static final class Report
+    {
+        private final String listener;
+        private final String handler;
+        private final Class<?> eventType;
+        private final String thread;
+        private final long elapsed;
+        private final List<StackTraceElement[]> samples;
+
+        Report(String listener, String handler, Class<?> eventType, String thread,
+               long elapsed, List<StackTraceElement[]> samples)
+        {
+            this.listener = listener;
+            this.handler = handler;
+            this.eventType = eventType;
+            this.thread = thread;
+            this.elapsed = elapsed;
+            this.samples = Collections.unmodifiableList(samples);
+        }
+
+        /**
+         * Gets the name of the listener.
+         *
+         * @return The name of the listener.
+         */
+        public String getListener()
+        {
+            return listener;
+        }
+
+        /**
+         * Gets the name of the method invoked.
+         *
+         * @return The name of the method.
+         */
+        public String getHandler()
+        {
+            return handler;
+        }
+
+        /**
+         * Gets the type of the event the method was invoked with.
+         *
+         * @return The type of the event.
+         */
+        public Class<?> getEventType()
+        {
+            return eventType;
+        }
+
+        /**
+         * Gets the name of the thread the method ran on.
+         *
+         * @return The name of the thread.
+         */
+        public String getThread()
+        {
+            return thread;
+        }
+
+        /**
+         * Gets how long the invocation had run for when it was reported, in milliseconds.
+         *
+         * @return The time the invocation had run for.
+         */
+        public long getElapsed()
+        {
+            return elapsed;
+        }
+
+        /**
+         * Gets the stack samples of the thread taken while the invocation was over budget.
+         *
+         * @return The stack samples.
+         */
+        public List<StackTraceElement[]> getSamples()
+        {
+            return samples;
+        }
+
+        @Override
+        public String toString()
+        {
+            return listener + "." + handler + " ran over budget for " + eventType.getSimpleName() +
+                   " on " + thread + " (" + elapsed + "ms)";
+        }
+    }
+}
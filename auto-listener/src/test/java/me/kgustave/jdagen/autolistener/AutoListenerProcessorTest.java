@@ -0,0 +1,317 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import me.kgustave.jdagen.autolistener.runtime.TypedListener;
+import net.dv8tion.jda.core.events.ReadyEvent;
+import net.dv8tion.jda.core.events.guild.GenericGuildEvent;
+import net.dv8tion.jda.core.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.core.hooks.EventListener;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.lang.reflect.Constructor;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Kaidan Gustave
+ */
+public class AutoListenerProcessorTest
+{
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void delegatingListenersInvokeTheOriginal() throws Exception
+    {
+        try(Compilation compilation = Compilation.compile(
+            "package test;\n" +
+            "import me.kgustave.jdagen.autolistener.AutoListener;\n" +
+            "import net.dv8tion.jda.core.events.ReadyEvent;\n" +
+            "import java.util.*;\n" +
+            "@AutoListener\n" +
+            "public class Greeter {\n" +
+            "    public static final List<String> LOG = new ArrayList<>();\n" +
+            "    public void ready(ReadyEvent event) { LOG.add(\"ready\"); }\n" +
+            "}\n")) {
+            assertTrue(compilation.toString(), compilation.succeeded());
+
+            String source = compilation.generated("test.GreeterListener");
+            assertTrue(source, source.contains("private final Greeter instance;"));
+
+            Class<?> type = compilation.load("test.GreeterListener");
+            EventListener listener = (EventListener) type.getConstructor().newInstance();
+            listener.onEvent(new ReadyEvent(null, 0));
+            assertEquals(Collections.singletonList("ready"), type.getClassLoader()
+                                                                  .loadClass("test.Greeter")
+                                                                  .getField("LOG").get(null));
+        }
+    }
+
+    @Test
+    public void subclassListenersExtendTheOriginal() throws Exception
+    {
+        try(Compilation compilation = Compilation.compile(
+            "package test;\n" +
+            "import me.kgustave.jdagen.autolistener.AutoListener;\n" +
+            "import net.dv8tion.jda.core.events.ReadyEvent;\n" +
+            "@AutoListener(generation = AutoListener.Generation.SUBCLASS)\n" +
+            "public class Counter {\n" +
+            "    public int count;\n" +
+            "    public void ready(ReadyEvent event) { count++; }\n" +
+            "}\n")) {
+            assertTrue(compilation.toString(), compilation.succeeded());
+
+            Class<?> type = compilation.load("test.CounterListener");
+            assertEquals("test.Counter", type.getSuperclass().getName());
+
+            Object listener = type.getConstructor().newInstance();
+            ((EventListener) listener).onEvent(new ReadyEvent(null, 0));
+            assertEquals(1, type.getField("count").getInt(listener));
+        }
+    }
+
+    @Test
+    public void tableDispatchChecksSubtypesFirst() throws Exception
+    {
+        try(Compilation compilation = Compilation.compile(
+            "package test;\n" +
+            "import me.kgustave.jdagen.autolistener.AutoListener;\n" +
+            "import net.dv8tion.jda.core.events.guild.*;\n" +
+            "@AutoListener(dispatch = AutoListener.Dispatch.TABLE)\n" +
+            "public class Guilds {\n" +
+            "    public void any(GenericGuildEvent event) {}\n" +
+            "    public void join(GuildJoinEvent event) {}\n" +
+            "}\n")) {
+            assertTrue(compilation.toString(), compilation.succeeded());
+
+            String source = compilation.generated("test.GuildsListener");
+            assertTrue(source, source.contains("ClassValue<Integer>"));
+            assertTrue(source, source.contains("{GuildJoinEvent.class, GenericGuildEvent.class}"));
+        }
+    }
+
+    @Test
+    public void profilesOrderInstanceofChecksByFrequency() throws Exception
+    {
+        Path profile = folder.newFile("events.properties").toPath();
+        Files.write(profile, ("net.dv8tion.jda.core.events.user.UserTypingEvent=1000\n" +
+                              "net.dv8tion.jda.core.events.message.MessageReceivedEvent=10\n")
+            .getBytes(StandardCharsets.UTF_8));
+
+        try(Compilation compilation = Compilation.compile(
+            Collections.singletonList("-A" + AutoListenerProcessor.PROFILE_OPTION + "=" + profile),
+            "package test;\n" +
+            "import me.kgustave.jdagen.autolistener.AutoListener;\n" +
+            "import net.dv8tion.jda.core.events.message.MessageReceivedEvent;\n" +
+            "import net.dv8tion.jda.core.events.user.UserTypingEvent;\n" +
+            "@AutoListener\n" +
+            "public class Profiled {\n" +
+            "    public void message(MessageReceivedEvent event) {}\n" +
+            "    public void typing(UserTypingEvent event) {}\n" +
+            "}\n")) {
+            assertTrue(compilation.toString(), compilation.succeeded());
+
+            String source = compilation.generated("test.ProfiledListener");
+            int typing = source.indexOf("instanceof UserTypingEvent");
+            int message = source.indexOf("instanceof MessageReceivedEvent");
+            assertTrue(source, typing >= 0 && message >= 0 && typing < message);
+        }
+    }
+
+    @Test
+    public void commandsAndGuardsAreGenerated() throws Exception
+    {
+        try(Compilation compilation = Compilation.compile(
+            "package test;\n" +
+            "import me.kgustave.jdagen.autolistener.*;\n" +
+            "import net.dv8tion.jda.core.events.message.MessageReceivedEvent;\n" +
+            "@AutoListener\n" +
+            "public class Commands {\n" +
+            "    @IgnoreBots @Command(\"ping\") public void ping(MessageReceivedEvent event) {}\n" +
+            "    @Contains(\"hello\") public void hello(MessageReceivedEvent event) {}\n" +
+            "}\n")) {
+            assertTrue(compilation.toString(), compilation.succeeded());
+
+            String source = compilation.generated("test.CommandsListener");
+            assertTrue(source, source.contains("CommandTrie"));
+            assertTrue(source, source.contains("KeywordMatcher"));
+            assertTrue(source, source.contains("getAuthor().isBot()"));
+        }
+    }
+
+    @Test
+    public void everyExecutionCompiles() throws Exception
+    {
+        for(AutoListener.Execution execution : AutoListener.Execution.values())
+        {
+            try(Compilation compilation = Compilation.compile(
+                "package test;\n" +
+                "import me.kgustave.jdagen.autolistener.*;\n" +
+                "import net.dv8tion.jda.core.events.ReadyEvent;\n" +
+                "import net.dv8tion.jda.core.events.message.MessageReceivedEvent;\n" +
+                "@AutoListener(metrics = true, execution = AutoListener.Execution." + execution + ")\n" +
+                "public class Executed {\n" +
+                "    public void ready(ReadyEvent event) {}\n" +
+                "    @Command(\"ping\") public void ping(MessageReceivedEvent event) {}\n" +
+                "}\n")) {
+                assertTrue(execution + ": " + compilation, compilation.succeeded());
+            }
+        }
+    }
+
+    @Test
+    public void conflictingMethodsAreReported() throws Exception
+    {
+        try(Compilation compilation = Compilation.compile(
+            "package test;\n" +
+            "import me.kgustave.jdagen.autolistener.AutoListener;\n" +
+            "import me.kgustave.jdagen.autolistener.runtime.ListenerStats;\n" +
+            "import net.dv8tion.jda.core.events.ReadyEvent;\n" +
+            "@AutoListener(metrics = true, generation = AutoListener.Generation.SUBCLASS)\n" +
+            "public class Clashing {\n" +
+            "    public void ready(ReadyEvent event) {}\n" +
+            "    public ListenerStats getStats() { return null; }\n" +
+            "    public void invokeHandler(int handler, Object event) {}\n" +
+            "}\n")) {
+            assertFalse(compilation.succeeded());
+            assertEquals(compilation.toString(), 2, compilation.errors().size());
+            assertReported(compilation, "getStats() conflicts with the method of the same name generated in ClashingListener!");
+            assertReported(compilation, "invokeHandler(int,java.lang.Object) conflicts with the method of the same name generated in ClashingListener!");
+        }
+    }
+
+    @Test
+    public void invalidDurationsAreReported() throws Exception
+    {
+        try(Compilation compilation = Compilation.compile(
+            "package test;\n" +
+            "import me.kgustave.jdagen.autolistener.*;\n" +
+            "import net.dv8tion.jda.core.events.ReadyEvent;\n" +
+            "@AutoListener(watchdog = \"soon\")\n" +
+            "public class Watched {\n" +
+            "    public void ready(ReadyEvent event) {}\n" +
+            "}\n")) {
+            assertFalse(compilation.succeeded());
+            assertReported(compilation, "@AutoListener on Watched has an invalid watchdog: 'soon'!");
+        }
+
+        try(Compilation compilation = Compilation.compile(
+            "package test;\n" +
+            "import me.kgustave.jdagen.autolistener.*;\n" +
+            "import net.dv8tion.jda.core.events.message.MessageReceivedEvent;\n" +
+            "@AutoListener\n" +
+            "public class Throttled {\n" +
+            "    @Throttle(permits = 5, period = \"0s\") public void message(MessageReceivedEvent event) {}\n" +
+            "}\n")) {
+            assertFalse(compilation.succeeded());
+            assertReported(compilation, "@Throttle on message has an invalid period, it must be at least 1ms: '0s'!");
+        }
+    }
+
+    private static void assertReported(Compilation compilation, String error)
+    {
+        List<String> errors = compilation.errors();
+        assertTrue(errors.toString(), errors.contains(error));
+    }
+
+    @Test
+    public void hubsRouteEventsToInterestedListeners() throws Exception
+    {
+        try(Compilation compilation = Compilation.compile(
+            Collections.singletonList("-A" + AutoListenerProcessor.HUB_OPTION + "=test.Hub"),
+            "package test;\n" +
+            "import java.util.*;\n" +
+            "public class Log {\n" +
+            "    public static final List<String> LOG = new ArrayList<>();\n" +
+            "}\n",
+            "package test;\n" +
+            "import me.kgustave.jdagen.autolistener.AutoListener;\n" +
+            "import net.dv8tion.jda.core.events.ReadyEvent;\n" +
+            "@AutoListener\n" +
+            "public class Thrower {\n" +
+            "    public void ready(ReadyEvent event) { throw new IllegalStateException(\"thrown\"); }\n" +
+            "}\n",
+            "package test;\n" +
+            "import me.kgustave.jdagen.autolistener.AutoListener;\n" +
+            "import net.dv8tion.jda.core.events.ReadyEvent;\n" +
+            "import net.dv8tion.jda.core.events.guild.*;\n" +
+            "@AutoListener(dispatch = AutoListener.Dispatch.TABLE)\n" +
+            "public class Tables {\n" +
+            "    public void ready(ReadyEvent event) { Log.LOG.add(\"table ready\"); }\n" +
+            "    public void any(GenericGuildEvent event) { Log.LOG.add(\"table guild\"); }\n" +
+            "    public void join(GuildJoinEvent event) { Log.LOG.add(\"table join\"); }\n" +
+            "}\n",
+            "package test;\n" +
+            "import me.kgustave.jdagen.autolistener.AutoListener;\n" +
+            "import net.dv8tion.jda.core.events.guild.*;\n" +
+            "@AutoListener(dispatch = AutoListener.Dispatch.INSTANCEOF)\n" +
+            "public class Checks {\n" +
+            "    public void any(GenericGuildEvent event) { Log.LOG.add(\"check guild\"); }\n" +
+            "}\n")) {
+            assertTrue(compilation.toString(), compilation.succeeded());
+
+            Class<?> hubType = compilation.load("test.Hub");
+            Constructor<?> constructor = hubType.getConstructors()[0];
+            Object[] listeners = new Object[constructor.getParameterCount()];
+            for(int i = 0; i < listeners.length; i++)
+                listeners[i] = constructor.getParameterTypes()[i].getConstructor().newInstance();
+            TypedListener hub = (TypedListener) constructor.newInstance(listeners);
+
+            assertEquals(new HashSet<>(Arrays.asList(ReadyEvent.class, GenericGuildEvent.class, GuildJoinEvent.class)),
+                new HashSet<>(Arrays.asList(hub.getEventTypes())));
+
+            @SuppressWarnings("unchecked")
+            List<String> log = (List<String>) hubType.getClassLoader().loadClass("test.Log").getField("LOG").get(null);
+            List<Throwable> thrown = new ArrayList<>();
+            Thread.UncaughtExceptionHandler handler = Thread.currentThread().getUncaughtExceptionHandler();
+            Thread.currentThread().setUncaughtExceptionHandler((thread, t) -> thrown.add(t));
+            try {
+                hub.onEvent(new ReadyEvent(null, 0));
+                assertEquals(Collections.singletonList("table ready"), log);
+                assertEquals(1, thrown.size());
+                assertEquals("thrown", thrown.get(0).getMessage());
+
+                log.clear();
+                hub.onEvent(new GuildJoinEvent(null, 0));
+                assertEquals(new HashSet<>(Arrays.asList("table join", "table guild", "check guild")),
+                    new HashSet<>(log));
+                assertTrue(log.toString(), log.indexOf("table guild") < log.indexOf("table join"));
+                assertEquals(1, thrown.size());
+            } finally {
+                Thread.currentThread().setUncaughtExceptionHandler(handler);
+            }
+
+            // Without the hub, the listeners still handle events themselves
+            for(String name : new String[] {"test.TablesListener", "test.ChecksListener"})
+            {
+                log.clear();
+                EventListener listener = (EventListener) hubType.getClassLoader().loadClass(name)
+                                                                .getConstructor().newInstance();
+                listener.onEvent(new GuildJoinEvent(null, 0));
+                listener.onEvent(new ReadyEvent(null, 0));
+                assertFalse(name, log.isEmpty());
+            }
+            assertEquals(Collections.singletonList("check guild"), log);
+        }
+    }
+}
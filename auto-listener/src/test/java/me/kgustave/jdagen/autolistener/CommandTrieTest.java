@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import me.kgustave.jdagen.autolistener.runtime.CommandTrie;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Kaidan Gustave
+ */
+public class CommandTrieTest
+{
+    @Test
+    public void encodesSortedEdgesPerState()
+    {
+        CommandTrieBuilder builder = new CommandTrieBuilder();
+        builder.add("ba");
+        builder.add("a");
+        builder.add("bc");
+
+        String[] encoded = builder.build();
+
+        // States in order of creation: root, b, ba, a, bc
+        assertArrayEquals(new int[] {0, 2, 4, 4, 4, 4}, chars(encoded[0]));
+        assertEquals("abac", encoded[1]);
+        assertArrayEquals(new int[] {3, 1, 2, 4}, chars(encoded[2]));
+        assertArrayEquals(new int[] {0, 0, 1, 2, 3}, chars(encoded[3]));
+    }
+
+    @Test
+    public void keysMatchInTheOrderTheyWereAdded()
+    {
+        CommandTrie trie = trieOf("!ping", "!p", "!pong", "!help");
+
+        assertEquals(0, trie.match("!ping"));
+        assertEquals(1, trie.match("!p"));
+        assertEquals(2, trie.match("!pong"));
+        assertEquals(3, trie.match("!help"));
+    }
+
+    @Test
+    public void aliasesAreSeparateKeys()
+    {
+        // The aliases of a command are added right after its name
+        CommandTrie trie = trieOf("!ban", "!b", "!kick", "!k");
+
+        assertEquals(0, trie.match("!ban user"));
+        assertEquals(1, trie.match("!b user"));
+        assertEquals(2, trie.match("!kick user"));
+        assertEquals(3, trie.match("!k user"));
+    }
+
+    @Test
+    public void keysOnlyMatchWholeTokens()
+    {
+        CommandTrie trie = trieOf("!p", "!ping");
+
+        assertEquals(0, trie.match("!p"));
+        assertEquals(0, trie.match("!p\targ"));
+        assertEquals(0, trie.match("!p\narg"));
+        assertEquals(1, trie.match("!ping 1 2"));
+        assertEquals(-1, trie.match("!pi"));
+        assertEquals(-1, trie.match("!pin"));
+        assertEquals(-1, trie.match("!pings"));
+        assertEquals(-1, trie.match("!"));
+        assertEquals(-1, trie.match(""));
+        assertEquals(-1, trie.match(" !p"));
+    }
+
+    @Test
+    public void keysMayContainWhitespaceFromThePrefix()
+    {
+        CommandTrie trie = trieOf("bot ping", "bot p");
+
+        assertEquals(0, trie.match("bot ping"));
+        assertEquals(1, trie.match("bot p 5"));
+        assertEquals(-1, trie.match("bot"));
+        assertEquals(-1, trie.match("bot  ping"));
+    }
+
+    @Test
+    public void endIsWhereTheMatchingKeyEnds()
+    {
+        CommandTrie trie = trieOf("bot ping", "!p");
+
+        assertEquals(8, trie.end("bot ping  1 2"));
+        assertEquals(8, trie.end("bot ping"));
+        assertEquals(2, trie.end("!p\targ"));
+        assertEquals(-1, trie.end("bot pin"));
+        assertEquals(-1, trie.end("bot"));
+    }
+
+    @Test
+    public void keysAreCaseSensitive()
+    {
+        CommandTrie trie = trieOf("!Ping", "!ping");
+
+        assertEquals(0, trie.match("!Ping"));
+        assertEquals(1, trie.match("!ping"));
+        assertEquals(-1, trie.match("!PING"));
+    }
+
+    @Test
+    public void matchesManyKeys()
+    {
+        String[] keys = new String[500];
+        for(int i = 0; i < keys.length; i++)
+            keys[i] = "?" + Integer.toString(i * 7919, 36);
+
+        CommandTrie trie = trieOf(keys);
+        for(int i = 0; i < keys.length; i++)
+            assertEquals(i, trie.match(keys[i] + " arg"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void duplicateKeysAreRejected()
+    {
+        trieOf("!ping", "!p", "!ping");
+    }
+
+    private static CommandTrie trieOf(String... keys)
+    {
+        CommandTrieBuilder builder = new CommandTrieBuilder();
+        for(String key : keys)
+            builder.add(key);
+
+        String[] encoded = builder.build();
+        return new CommandTrie(encoded[0], encoded[1], encoded[2], encoded[3]);
+    }
+
+    private static int[] chars(String encoded)
+    {
+        return encoded.chars().toArray();
+    }
+}
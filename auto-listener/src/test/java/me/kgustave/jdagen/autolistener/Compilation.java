@@ -0,0 +1,180 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import com.squareup.javapoet.TypeSpec;
+import me.kgustave.jdagen.commons.ProcessorFrame;
+import net.dv8tion.jda.core.events.Event;
+
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles sources with the {@link AutoListenerProcessor} into a temporary directory.
+ *
+ * <p>Only uses {@code javax.tools}, so running the processor in tests doesn't need any
+ * dependencies beyond the ones of the module.
+ *
+ * @author Kaidan Gustave
+ */
+final class Compilation implements AutoCloseable
+{
+    private static final Pattern PACKAGE = Pattern.compile("package\\s+([\\w.]+)\\s*;");
+    private static final Pattern TYPE = Pattern.compile("(?:class|interface|enum)\\s+(\\w+)");
+
+    private final Path root;
+    private final Path classes;
+    private final Path generated;
+    private final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+    private final boolean succeeded;
+    private URLClassLoader loader;
+
+    private Compilation(Path root, Path classes, Path generated,
+                        List<Diagnostic<? extends JavaFileObject>> diagnostics, boolean succeeded)
+    {
+        this.root = root;
+        this.classes = classes;
+        this.generated = generated;
+        this.diagnostics = diagnostics;
+        this.succeeded = succeeded;
+    }
+
+    static Compilation compile(String... sources) throws IOException
+    {
+        return compile(Collections.emptyList(), sources);
+    }
+
+    static Compilation compile(List<String> options, String... sources) throws IOException
+    {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if(compiler == null)
+            throw new IllegalStateException("Tests must run on a JDK!");
+
+        Path root = Files.createTempDirectory("autolistener");
+        Path sourceDir = Files.createDirectories(root.resolve("src"));
+        Path classes = Files.createDirectories(root.resolve("classes"));
+        Path generated = Files.createDirectories(root.resolve("generated"));
+
+        List<File> files = new ArrayList<>();
+        for(String source : sources)
+        {
+            Path file = sourceDir.resolve(nameOf(source).replace('.', File.separatorChar) + ".java");
+            Files.createDirectories(file.getParent());
+            Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+            files.add(file.toFile());
+        }
+
+        List<String> arguments = new ArrayList<>(options);
+        arguments.addAll(Arrays.asList("-classpath", classpath(), "-d", classes.toString(),
+            "-s", generated.toString(), "-encoding", "UTF-8", "-nowarn"));
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try(StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, arguments,
+                null, fileManager.getJavaFileObjectsFromFiles(files));
+            task.setProcessors(Collections.singletonList(new AutoListenerProcessor()));
+            boolean succeeded = task.call();
+            return new Compilation(root, classes, generated, diagnostics.getDiagnostics(), succeeded);
+        }
+    }
+
+    boolean succeeded()
+    {
+        return succeeded;
+    }
+
+    List<String> errors()
+    {
+        return diagnostics.stream()
+                          .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                          .map(diagnostic -> diagnostic.getMessage(Locale.ROOT))
+                          .collect(Collectors.toList());
+    }
+
+    String generated(String className) throws IOException
+    {
+        Path file = generated.resolve(className.replace('.', File.separatorChar) + ".java");
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    Path classFile(String className)
+    {
+        return classes.resolve(className.replace('.', File.separatorChar) + ".class");
+    }
+
+    Class<?> load(String className) throws Exception
+    {
+        if(loader == null)
+            loader = new URLClassLoader(new URL[] {classes.toUri().toURL()}, Compilation.class.getClassLoader());
+        return loader.loadClass(className);
+    }
+
+    @Override
+    public String toString()
+    {
+        return diagnostics.stream().map(Object::toString).collect(Collectors.joining(System.lineSeparator()));
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if(loader != null)
+            loader.close();
+
+        try(Stream<Path> paths = Files.walk(root)) {
+            List<Path> all = paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            for(Path path : all)
+                Files.delete(path);
+        }
+    }
+
+    private static String nameOf(String source)
+    {
+        Matcher type = TYPE.matcher(source);
+        if(!type.find())
+            throw new IllegalArgumentException("Source has no type: " + source);
+
+        Matcher pkg = PACKAGE.matcher(source);
+        return pkg.find()? pkg.group(1) + "." + type.group(1) : type.group(1);
+    }
+
+    // The classpath of a test worker doesn't always list everything it can load
+    private static String classpath()
+    {
+        Set<String> entries = new LinkedHashSet<>(Arrays.asList(
+            System.getProperty("java.class.path").split(Pattern.quote(File.pathSeparator))));
+        for(Class<?> type : Arrays.asList(AutoListener.class, ProcessorFrame.class, Event.class, TypeSpec.class))
+        {
+            try {
+                entries.add(new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath());
+            } catch(Exception ignored) {
+                // Already on the classpath then
+            }
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+}
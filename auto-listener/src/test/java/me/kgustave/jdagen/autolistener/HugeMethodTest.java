@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import net.dv8tion.jda.core.events.ReadyEvent;
+import net.dv8tion.jda.core.hooks.EventListener;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Kaidan Gustave
+ */
+public class HugeMethodTest
+{
+    private static final int HUGE_METHOD_LIMIT = 8000;
+
+    private static final String[] EVENTS = {
+        "net.dv8tion.jda.core.events.ReadyEvent",
+        "net.dv8tion.jda.core.events.message.MessageReceivedEvent",
+        "net.dv8tion.jda.core.events.message.MessageDeleteEvent",
+        "net.dv8tion.jda.core.events.message.GenericMessageEvent",
+        "net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent",
+        "net.dv8tion.jda.core.events.guild.GuildJoinEvent",
+        "net.dv8tion.jda.core.events.guild.GenericGuildEvent",
+        "net.dv8tion.jda.core.events.user.UserTypingEvent",
+        "net.dv8tion.jda.core.events.user.GenericUserEvent"
+    };
+
+    @Test
+    public void manyHandlersOfManyEventsFit() throws Exception
+    {
+        for(String options : new String[] {"", "metrics = true", "dispatch = AutoListener.Dispatch.TABLE, metrics = true"})
+            assertFits(options, 1100, EVENTS);
+    }
+
+    @Test
+    public void manyHandlersOfOneEventFit() throws Exception
+    {
+        for(String options : new String[] {"", "metrics = true", "generation = AutoListener.Generation.SUBCLASS"})
+            assertFits(options, 1100, EVENTS[0]);
+    }
+
+    private static void assertFits(String options, int count, String... events) throws Exception
+    {
+        StringBuilder source = new StringBuilder()
+            .append("package test;\n")
+            .append("import me.kgustave.jdagen.autolistener.AutoListener;\n")
+            .append("@AutoListener(").append(options).append(")\n")
+            .append("public class Huge {\n")
+            .append("    public static final java.util.List<Integer> CALLS = new java.util.ArrayList<>();\n");
+        int ready = 0;
+        for(int i = 0; i < count; i++)
+        {
+            String event = events[i % events.length];
+            if(event.equals(EVENTS[0]))
+                ready++;
+            source.append("    public void handle").append(i).append('(').append(event)
+                  .append(" event) { CALLS.add(").append(i).append("); }\n");
+        }
+        source.append("}\n");
+
+        try(Compilation compilation = Compilation.compile(source.toString())) {
+            assertTrue(options + ": " + compilation, compilation.succeeded());
+
+            Map<String, Integer> sizes = codeSizes(compilation.classFile("test.HugeListener"));
+            for(Map.Entry<String, Integer> method : sizes.entrySet())
+            {
+                // Initializers only ever run once, so they're never compiled anyways
+                if(method.getKey().startsWith("<"))
+                    continue;
+
+                assertTrue(options + ": " + method.getKey() + " is " + method.getValue() + " bytes",
+                    method.getValue() <= HUGE_METHOD_LIMIT);
+            }
+
+            // Splitting keeps every handler, in order
+            Class<?> type = compilation.load("test.HugeListener");
+            EventListener listener = (EventListener) type.getConstructor().newInstance();
+            listener.onEvent(new ReadyEvent(null, 0));
+
+            List<?> calls = (List<?>) type.getClassLoader().loadClass("test.Huge").getField("CALLS").get(null);
+            assertEquals(options, ready, calls.size());
+            for(int i = 0; i < calls.size(); i++)
+                assertEquals(options, i * events.length, calls.get(i));
+        }
+    }
+
+    // Reads the length of the bytecode of each method in a class file
+    private static Map<String, Integer> codeSizes(Path classFile) throws IOException
+    {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        try(DataInputStream in = new DataInputStream(Files.newInputStream(classFile))) {
+            in.readInt();   // magic
+            in.readInt();   // minor and major version
+
+            int constants = in.readUnsignedShort();
+            String[] utf8 = new String[constants];
+            for(int i = 1; i < constants; i++)
+            {
+                int tag = in.readUnsignedByte();
+                switch(tag)
+                {
+                    case 1:  utf8[i] = in.readUTF(); break;
+                    case 5:                                      // long
+                    case 6:  in.readLong(); i++; break;          // double
+                    case 3:                                      // integer
+                    case 4:                                      // float
+                    case 9:                                      // field
+                    case 10:                                     // method
+                    case 11:                                     // interface method
+                    case 12:                                     // name and type
+                    case 18: in.readInt(); break;                // invokedynamic
+                    case 15: in.readUnsignedByte(); in.readUnsignedShort(); break; // method handle
+                    default: in.readUnsignedShort();             // class, string, method type
+                }
+            }
+
+            in.readUnsignedShort(); // access
+            in.readUnsignedShort(); // this
+            in.readUnsignedShort(); // super
+            skip(in, in.readUnsignedShort() * 2); // interfaces
+
+            int fields = in.readUnsignedShort();
+            for(int i = 0; i < fields; i++)
+            {
+                skip(in, 6);
+                skipAttributes(in);
+            }
+
+            int methods = in.readUnsignedShort();
+            for(int i = 0; i < methods; i++)
+            {
+                in.readUnsignedShort();
+                String name = utf8[in.readUnsignedShort()] + utf8[in.readUnsignedShort()];
+                int attributes = in.readUnsignedShort();
+                for(int j = 0; j < attributes; j++)
+                {
+                    String attribute = utf8[in.readUnsignedShort()];
+                    int length = in.readInt();
+                    if(!attribute.equals("Code"))
+                    {
+                        skip(in, length);
+                        continue;
+                    }
+
+                    in.readUnsignedShort(); // max stack
+                    in.readUnsignedShort(); // max locals
+                    int code = in.readInt();
+                    sizes.put(name, code);
+                    skip(in, length - 8);
+                }
+            }
+        }
+        return sizes;
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException
+    {
+        int attributes = in.readUnsignedShort();
+        for(int i = 0; i < attributes; i++)
+        {
+            in.readUnsignedShort();
+            skip(in, in.readInt());
+        }
+    }
+
+    private static void skip(DataInputStream in, int bytes) throws IOException
+    {
+        int skipped = 0;
+        while(skipped < bytes)
+            skipped += in.skipBytes(bytes - skipped);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener;
+
+import me.kgustave.jdagen.autolistener.runtime.KeywordMatcher;
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Kaidan Gustave
+ */
+public class KeywordMatcherTest
+{
+    @Test
+    public void findsOverlappingKeywords()
+    {
+        KeywordMatcher matcher = matcherOf(new String[] {"he"}, new String[] {"she"}, new String[] {"his"}, new String[] {"hers"});
+
+        assertEquals(0b1011L, matcher.match("ushers"));
+        assertEquals(0b0100L, matcher.match("this"));
+        assertEquals(0b0101L, matcher.match("hehis"));
+        assertEquals(0b0001L, matcher.match("the"));
+        assertEquals(0L, matcher.match("hi s"));
+        assertEquals(0L, matcher.match(""));
+    }
+
+    @Test
+    public void findsKeywordsThroughFailureLinks()
+    {
+        // "bc" ends inside "abcd", and "aab" only matches after failing back from "aaa"
+        KeywordMatcher matcher = matcherOf(new String[] {"abcd"}, new String[] {"bc"}, new String[] {"aab"});
+
+        assertEquals(0b010L, matcher.match("abce"));
+        assertEquals(0b011L, matcher.match("xabcdx"));
+        assertEquals(0b100L, matcher.match("aaab"));
+        assertEquals(0b110L, matcher.match("aaabc"));
+    }
+
+    @Test
+    public void foldsCase()
+    {
+        KeywordMatcher matcher = matcherOf(new String[] {"Hello"}, new String[] {"WORLD"});
+
+        assertEquals(0b11L, matcher.match("hello world"));
+        assertEquals(0b11L, matcher.match("HELLO WORLD"));
+        assertEquals(0b01L, matcher.match("hElLo"));
+    }
+
+    @Test
+    public void keywordsOfASetShareItsBit()
+    {
+        KeywordMatcher matcher = matcherOf(new String[] {"cat", "dog"}, new String[] {"bird"});
+
+        assertEquals(0b01L, matcher.match("dog"));
+        assertEquals(0b01L, matcher.match("cat and dog"));
+        assertEquals(0b11L, matcher.match("bird dog"));
+    }
+
+    @Test
+    public void matchesManyKeywords()
+    {
+        // Far more keywords than bits, spread over every set
+        String[][] sets = new String[KeywordMatcherBuilder.MAX_SETS][];
+        for(int set = 0; set < sets.length; set++)
+        {
+            sets[set] = new String[5];
+            for(int i = 0; i < sets[set].length; i++)
+                sets[set][i] = "word" + set + "x" + i;
+        }
+
+        KeywordMatcher matcher = matcherOf(sets);
+        for(int set = 0; set < sets.length; set++)
+        {
+            for(String keyword : sets[set])
+                assertEquals(keyword, 1L << set, matcher.match("a " + keyword + " b"));
+        }
+
+        assertEquals(1L << 63 | 1L << 7, matcher.match("word63x4 word7x0"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void noMoreSetsThanBits()
+    {
+        new KeywordMatcherBuilder().add("keyword", KeywordMatcherBuilder.MAX_SETS);
+    }
+
+    @Test
+    public void agreesWithNaiveMatching()
+    {
+        Random random = new Random(42);
+        for(int round = 0; round < 200; round++)
+        {
+            // A small alphabet makes overlaps and shared prefixes likely
+            String[][] sets = new String[1 + random.nextInt(8)][];
+            for(int set = 0; set < sets.length; set++)
+            {
+                sets[set] = new String[1 + random.nextInt(4)];
+                for(int i = 0; i < sets[set].length; i++)
+                    sets[set][i] = randomString(random, 1 + random.nextInt(5));
+            }
+
+            KeywordMatcher matcher = matcherOf(sets);
+            for(int i = 0; i < 20; i++)
+            {
+                String text = randomString(random, random.nextInt(30));
+
+                long expected = 0L;
+                for(int set = 0; set < sets.length; set++)
+                {
+                    for(String keyword : sets[set])
+                    {
+                        if(text.toLowerCase(Locale.ROOT).contains(keyword.toLowerCase(Locale.ROOT)))
+                            expected |= 1L << set;
+                    }
+                }
+
+                assertEquals(text, expected, matcher.match(text));
+            }
+        }
+    }
+
+    private static String randomString(Random random, int length)
+    {
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < length; i++)
+            builder.append("abcAB".charAt(random.nextInt(5)));
+        return builder.toString();
+    }
+
+    private static KeywordMatcher matcherOf(String[]... sets)
+    {
+        KeywordMatcherBuilder builder = new KeywordMatcherBuilder();
+        for(int set = 0; set < sets.length; set++)
+        {
+            for(String keyword : sets[set])
+                builder.add(keyword, set);
+        }
+
+        String[] encoded = builder.build();
+        return new KeywordMatcher(encoded[0], encoded[1], encoded[2], encoded[3], encoded[4]);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * @author Kaidan Gustave
+ */
+public class AllocationStatsTest
+{
+    private static volatile byte[] sink;
+
+    @Test
+    public void everyInvocationIsCounted()
+    {
+        AllocationStats stats = new AllocationStats("test", 10, "a", "b");
+        for(int i = 0; i < 1000; i++)
+            stats.end(0, stats.begin(0));
+        for(int i = 0; i < 10; i++)
+            stats.end(1, stats.begin(1));
+
+        assertEquals(1000, stats.getInvocations(0));
+        assertEquals(10, stats.getInvocations(1));
+    }
+
+    @Test
+    public void handlersAreScaledByTheirOwnSamples()
+    {
+        assumeTrue(AllocationStats.isSupported());
+
+        AllocationStats stats = new AllocationStats("test", 10, "a", "b");
+        for(int i = 0; i < 20_000; i++)
+        {
+            // A rarely called handler in between mustn't take the samples of a busy one
+            long start = stats.begin(0);
+            sink = new byte[1024];
+            stats.end(0, start);
+            if(i % 100 == 0)
+                stats.end(1, stats.begin(1));
+        }
+
+        long allocated = 20_000L * 1024;
+        long estimated = stats.getAllocatedBytes(0);
+        assertTrue(estimated + " < " + allocated, estimated >= allocated);
+        assertTrue(estimated + " > " + allocated, estimated < allocated * 12 / 10);
+        assertTrue(stats.getAllocatedBytes(1) < 20_000L * 1024 / 10);
+    }
+
+    @Test
+    public void unsampledHandlersEstimateNothing()
+    {
+        AllocationStats stats = new AllocationStats("test", 10, "a");
+        assertEquals(0, stats.getAllocatedBytes(0));
+        assertEquals(0, stats.getBytesPerInvocation(0));
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Kaidan Gustave
+ */
+public class BatcherTest
+{
+    @Test(timeout = 10_000)
+    public void fullBatchesFlushOnTheAddingThread() throws Exception
+    {
+        BlockingQueue<List<Integer>> batches = new LinkedBlockingQueue<>();
+        BlockingQueue<Thread> threads = new LinkedBlockingQueue<>();
+        Batcher<Integer> batcher = new Batcher<>(3, 60_000L, batch -> {
+            threads.add(Thread.currentThread());
+            batches.add(batch);
+        });
+
+        for(int i = 1; i <= 7; i++)
+            batcher.add(i);
+
+        assertEquals(Arrays.asList(1, 2, 3), batches.poll());
+        assertEquals(Arrays.asList(4, 5, 6), batches.poll());
+        assertNull(batches.poll());
+        assertEquals(Thread.currentThread(), threads.poll());
+        assertEquals(Thread.currentThread(), threads.poll());
+
+        // The last event is only flushed on demand, long before its delay
+        batcher.flush();
+        assertEquals(Collections.singletonList(7), batches.poll());
+    }
+
+    @Test(timeout = 10_000)
+    public void delayedBatchesFlushOnTheExecutor() throws Exception
+    {
+        BlockingQueue<List<Integer>> batches = new LinkedBlockingQueue<>();
+        BlockingQueue<String> threads = new LinkedBlockingQueue<>();
+        Batcher<Integer> batcher = new Batcher<>(100, 50L, batch -> {
+            threads.add(Thread.currentThread().getName());
+            batches.add(batch);
+        });
+
+        long start = System.nanoTime();
+        batcher.add(1);
+        batcher.add(2);
+
+        assertEquals(Arrays.asList(1, 2), batches.poll(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(threads.poll().startsWith("JDA-Auto-Delivery"));
+
+        // A new batch gets a new delay
+        batcher.add(3);
+        assertEquals(Collections.singletonList(3), batches.poll(5, TimeUnit.SECONDS));
+        assertNull(batches.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(timeout = 10_000)
+    public void batchesFlushedBySizeAreNotFlushedAgainByDelay() throws Exception
+    {
+        BlockingQueue<List<Integer>> batches = new LinkedBlockingQueue<>();
+        Batcher<Integer> batcher = new Batcher<>(2, 50L, batches::add);
+
+        batcher.add(1);
+        batcher.add(2);
+        assertEquals(Arrays.asList(1, 2), batches.poll());
+
+        // The timer of the first batch must not flush this one early
+        batcher.add(3);
+        assertNull(batches.poll(20, TimeUnit.MILLISECONDS));
+        assertEquals(Collections.singletonList(3), batches.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 10_000)
+    public void delayedBatchesUseTheProvidedExecutor() throws Exception
+    {
+        BlockingQueue<List<Integer>> batches = new LinkedBlockingQueue<>();
+        BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+        Batcher<Integer> batcher = new Batcher<>(100, 10L, tasks::add, batches::add);
+
+        batcher.add(1);
+        Runnable task = tasks.poll(5, TimeUnit.SECONDS);
+        assertNotNull(task);
+        assertNull(batches.poll());
+
+        task.run();
+        assertEquals(Collections.singletonList(1), batches.poll());
+    }
+
+    @Test(timeout = 10_000)
+    public void slowFlushesDoNotHoldBackOtherTimers() throws Exception
+    {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        Batcher<Integer> slow = new Batcher<>(100, 10L, batch -> {
+            slowStarted.countDown();
+            try {
+                release.await();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        BlockingQueue<List<Integer>> batches = new LinkedBlockingQueue<>();
+        Batcher<Integer> fast = new Batcher<>(100, 10L, batches::add);
+
+        try {
+            slow.add(1);
+            assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+
+            fast.add(2);
+            assertEquals(Collections.singletonList(2), batches.poll(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+}
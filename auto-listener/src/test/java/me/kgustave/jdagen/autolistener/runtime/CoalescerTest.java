@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Kaidan Gustave
+ */
+public class CoalescerTest
+{
+    @Test(timeout = 10_000)
+    public void latestEventOfEachKeyWinsWithinAWindow() throws Exception
+    {
+        BlockingQueue<String> delivered = new LinkedBlockingQueue<>();
+        Coalescer<String> coalescer = new Coalescer<>(50L, delivered::add);
+
+        coalescer.add(1L, "a1");
+        coalescer.add(2L, "b1");
+        coalescer.add(1L, "a2");
+        coalescer.add(0L, "z1");
+        coalescer.add(-1L, "n1");
+        coalescer.add(0L, "z2");
+        coalescer.add(1L, "a3");
+
+        assertEquals(new HashSet<>(Arrays.asList("a3", "b1", "z2", "n1")), take(delivered, 4));
+        assertNull(delivered.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(timeout = 10_000)
+    public void eachWindowDeliversOnce() throws Exception
+    {
+        BlockingQueue<String> delivered = new LinkedBlockingQueue<>();
+        Coalescer<String> coalescer = new Coalescer<>(30L, delivered::add);
+
+        coalescer.add(1L, "first");
+        assertEquals(Collections.singleton("first"), take(delivered, 1));
+
+        // The same key in a later window is delivered again
+        coalescer.add(1L, "second");
+        assertEquals(Collections.singleton("second"), take(delivered, 1));
+        assertNull(delivered.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(timeout = 10_000)
+    public void growingKeepsTheLatestEventOfEveryKey() throws Exception
+    {
+        BlockingQueue<String> delivered = new LinkedBlockingQueue<>();
+        Coalescer<String> coalescer = new Coalescer<>(60_000L, delivered::add);
+
+        // Snowflakes share their low bits, which the table has to spread
+        for(int round = 0; round < 3; round++)
+        {
+            for(long key = 1; key <= 1000; key++)
+                coalescer.add(key << 22, key + ":" + round);
+        }
+
+        coalescer.flush();
+
+        Set<String> expected = new HashSet<>();
+        for(long key = 1; key <= 1000; key++)
+            expected.add(key + ":2");
+        assertEquals(expected, new HashSet<>(delivered));
+        assertEquals(1000, delivered.size());
+    }
+
+    @Test(timeout = 10_000)
+    public void flushDeliversOnTheCallingThread() throws Exception
+    {
+        List<Thread> threads = new ArrayList<>();
+        Coalescer<String> coalescer = new Coalescer<>(60_000L, event -> threads.add(Thread.currentThread()));
+
+        coalescer.add(1L, "a");
+        coalescer.add(2L, "b");
+        coalescer.shutdown();
+
+        assertEquals(Arrays.asList(Thread.currentThread(), Thread.currentThread()), threads);
+
+        // Nothing is left for the timer
+        coalescer.flush();
+        assertEquals(2, threads.size());
+    }
+
+    @Test(timeout = 10_000)
+    public void windowsAreDeliveredOnTheProvidedExecutor() throws Exception
+    {
+        BlockingQueue<String> delivered = new LinkedBlockingQueue<>();
+        BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+        Coalescer<String> coalescer = new Coalescer<>(10L, tasks::add, delivered::add);
+
+        coalescer.add(1L, "a");
+        coalescer.add(2L, "b");
+
+        // One task delivers the whole window
+        Runnable task = tasks.poll(5, TimeUnit.SECONDS);
+        assertNotNull(task);
+        assertTrue(delivered.isEmpty());
+
+        task.run();
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), new HashSet<>(delivered));
+        assertNull(tasks.poll(50, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(timeout = 10_000)
+    public void reusedWindowsOnlyDeliverTheirOwnEvents() throws Exception
+    {
+        List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+        BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+        Coalescer<String> coalescer = new Coalescer<>(10L, tasks::add, delivered::add);
+
+        // The second window is taken while the first is still waiting to be delivered
+        coalescer.add(1L, "a");
+        Runnable first = tasks.poll(5, TimeUnit.SECONDS);
+        coalescer.add(2L, "b");
+        Runnable second = tasks.poll(5, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertNotNull(second);
+
+        second.run();
+        assertEquals(Collections.singletonList("b"), delivered);
+        first.run();
+        assertEquals(Arrays.asList("b", "a"), delivered);
+
+        // Later windows reuse the cleared arrays of the earlier ones
+        for(int i = 0; i < 3; i++)
+        {
+            delivered.clear();
+            coalescer.add(3L + i, "c" + i);
+            Runnable task = tasks.poll(5, TimeUnit.SECONDS);
+            assertNotNull(task);
+            task.run();
+            assertEquals(Collections.singletonList("c" + i), delivered);
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void slowDeliveriesDoNotHoldBackOtherTimers() throws Exception
+    {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        Coalescer<String> slow = new Coalescer<>(10L, event -> {
+            slowStarted.countDown();
+            try {
+                release.await();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        BlockingQueue<String> delivered = new LinkedBlockingQueue<>();
+        Coalescer<String> fast = new Coalescer<>(10L, delivered::add);
+
+        try {
+            slow.add(1L, "slow");
+            assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+
+            fast.add(1L, "fast");
+            assertEquals("fast", delivered.poll(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static Set<String> take(BlockingQueue<String> delivered, int count) throws InterruptedException
+    {
+        Set<String> taken = new HashSet<>();
+        for(int i = 0; i < count; i++)
+        {
+            String event = delivered.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event);
+            taken.add(event);
+        }
+        return taken;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import org.junit.Test;
+
+import static me.kgustave.jdagen.autolistener.runtime.CommandArgs.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author Kaidan Gustave
+ */
+public class CommandArgsTest
+{
+    @Test
+    public void tokensAreSeparatedByAnyWhitespace()
+    {
+        String content = "!cmd  one\ttwo\n three";
+
+        int i = skip(content, end(content, 0));
+        assertEquals("one", content.substring(i, end(content, i)));
+        i = skip(content, end(content, i));
+        assertEquals("two", content.substring(i, end(content, i)));
+        i = skip(content, end(content, i));
+        assertEquals("three", content.substring(i, end(content, i)));
+        i = skip(content, end(content, i));
+        assertEquals(content.length(), i);
+        assertEquals(i, end(content, i));
+    }
+
+    @Test
+    public void restIsTheRemainderWithoutTrailingWhitespace()
+    {
+        String content = "!say  hello   world \n";
+
+        assertEquals("hello   world", rest(content, skip(content, 4)));
+        assertEquals("", rest(content, content.length()));
+        assertEquals("", rest(content, 19));
+        assertEquals("", rest("!say", 4));
+    }
+
+    @Test
+    public void parsesLongs()
+    {
+        assertEquals(0L, parse("0"));
+        assertEquals(42L, parse("42"));
+        assertEquals(-42L, parse("-42"));
+        assertEquals(Long.MAX_VALUE, parse("9223372036854775807"));
+        assertEquals(INVALID, parse("9223372036854775808"));
+        assertEquals(INVALID, parse(""));
+        assertEquals(INVALID, parse("-"));
+        assertEquals(INVALID, parse("4x2"));
+        assertEquals(INVALID, parse("+1"));
+    }
+
+    @Test
+    public void parsesMentionsAsTheirIDs()
+    {
+        assertEquals(123456789012345678L, parse("<@123456789012345678>"));
+        assertEquals(123456789012345678L, parse("<@!123456789012345678>"));
+        assertEquals(123456789012345678L, parse("<@&123456789012345678>"));
+        assertEquals(123456789012345678L, parse("<#123456789012345678>"));
+        assertEquals(INVALID, parse("<@>"));
+        assertEquals(INVALID, parse("<@!>"));
+        assertEquals(INVALID, parse("<:emote:123>"));
+        assertEquals(INVALID, parse("<@123"));
+        assertEquals(INVALID, parse("<@-123>"));
+    }
+
+    @Test
+    public void parsesInts()
+    {
+        assertEquals(Integer.MAX_VALUE, parseInt("2147483647", 0, 10));
+        assertEquals(Integer.MIN_VALUE, parseInt("-2147483648", 0, 11));
+        assertEquals(INVALID, parseInt("2147483648", 0, 10));
+        assertEquals(INVALID, parseInt("<@123>", 0, 6));
+    }
+
+    @Test
+    public void parsesTokensInPlace()
+    {
+        String content = "!give 12 apples";
+
+        assertEquals(12L, parseLong(content, 6, 8));
+        assertEquals(12.0, parseDouble(content, 6, 8), 0.0);
+        assertEquals(INVALID, parseLong(content, 9, 15));
+    }
+
+    @Test
+    public void parsesDoubles()
+    {
+        String[] valid = {"0", "-0", "1", "-1", "+2", "0.25", "-12.5", ".5", "5.", "3.141592653589793",
+                          "0.1", "0.30000000000000004", "123456789012345678", "0.0000000000000000000000001",
+                          "1e3", "-2.5E-3", "Infinity"};
+        for(String token : valid)
+            assertEquals(token, Double.doubleToLongBits(Double.parseDouble(token)), Double.doubleToLongBits(decimal(token)));
+
+        String[] invalid = {"", "-", ".", "1.2.3", "abc", "1,5", "NaN"};
+        for(String token : invalid)
+            assertTrue(token, Double.isNaN(decimal(token)));
+    }
+
+    @Test
+    public void parsesDurations()
+    {
+        assertEquals(30_000L, duration("30s"));
+        assertEquals(250L, duration("250ms"));
+        assertEquals(5_400_000L, duration("1h30m"));
+        assertEquals(90_061_001L, duration("1d1h1m1s1ms"));
+        assertEquals(INVALID, duration(""));
+        assertEquals(INVALID, duration("30"));
+        assertEquals(INVALID, duration("s"));
+        assertEquals(INVALID, duration("5w"));
+        assertEquals(INVALID, duration("1h 30m"));
+        assertEquals(INVALID, duration("99999999999s"));
+    }
+
+    private static long parse(String token)
+    {
+        return parseLong(token, 0, token.length());
+    }
+
+    private static double decimal(String token)
+    {
+        return parseDouble(token, 0, token.length());
+    }
+
+    private static long duration(String token)
+    {
+        return parseDuration(token, 0, token.length());
+    }
+}
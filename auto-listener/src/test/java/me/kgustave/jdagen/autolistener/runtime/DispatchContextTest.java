@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import org.junit.Test;
+
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Kaidan Gustave
+ */
+public class DispatchContextTest
+{
+    @Test
+    public void noContextOutsideOfATrackedMethod()
+    {
+        Consumer<Object> success = value -> {};
+
+        assertNull(DispatchContext.current());
+        assertSame(success, DispatchContext.onReply(success));
+
+        DispatchContext context = DispatchContext.enter(new ListenerStats("test", "a"), 0, 0L);
+        try {
+            assertNull(DispatchContext.current());
+            assertSame(success, DispatchContext.onReply(success));
+        } finally {
+            DispatchContext.exit(context);
+        }
+    }
+
+    @Test
+    public void repliesAreRecordedForTheInnermostMethod()
+    {
+        ListenerStats stats = new ListenerStats("test", "outer", "inner");
+        Consumer<Object> outerReply;
+        Consumer<Object> innerReply;
+
+        DispatchContext outer = DispatchContext.enter(stats, 0, System.nanoTime());
+        try {
+            // Deeper than the initial stack, so it has to grow
+            DispatchContext[] nested = new DispatchContext[8];
+            for(int i = 0; i < nested.length; i++)
+                nested[i] = DispatchContext.enter(stats, 1, System.nanoTime());
+            try {
+                assertSame(outer, DispatchContext.current());
+                innerReply = DispatchContext.onReply(null);
+            } finally {
+                for(int i = nested.length - 1; i >= 0; i--)
+                    DispatchContext.exit(nested[i]);
+            }
+            outerReply = DispatchContext.onReply(null);
+        } finally {
+            DispatchContext.exit(outer);
+        }
+
+        assertNull(DispatchContext.current());
+
+        // Callbacks keep the method they were created in, even after it exited
+        innerReply.accept(null);
+        innerReply.accept(null);
+        outerReply.accept(null);
+
+        assertEquals(1, stats.getHandlers().get(0).getReplyLatency().getCount());
+        assertEquals(2, stats.getHandlers().get(1).getReplyLatency().getCount());
+    }
+
+    @Test
+    public void histogramSumIsExact()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000);
+        histogram.record(123_456_789);
+        histogram.record(-5);
+
+        assertEquals(3, histogram.getCount());
+        assertEquals(123_457_789, histogram.getSum());
+    }
+}
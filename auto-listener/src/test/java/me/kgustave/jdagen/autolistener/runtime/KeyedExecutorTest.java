@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Kaidan Gustave
+ */
+public class KeyedExecutorTest
+{
+    @Test(timeout = 10_000)
+    public void tasksOfAKeyRunInOrder() throws Exception
+    {
+        KeyedExecutor executor = new KeyedExecutor("test", 4);
+        List<List<Integer>> runs = new ArrayList<>();
+        for(int key = 0; key < 8; key++)
+            runs.add(Collections.synchronizedList(new ArrayList<>()));
+
+        CountDownLatch done = new CountDownLatch(8 * 1000);
+        for(int i = 0; i < 1000; i++)
+        {
+            for(int key = 0; key < 8; key++)
+            {
+                int value = i;
+                List<Integer> run = runs.get(key);
+                executor.execute(key, () -> {
+                    run.add(value);
+                    done.countDown();
+                });
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for(List<Integer> run : runs)
+        {
+            for(int i = 0; i < 1000; i++)
+                assertEquals(i, (int) run.get(i));
+        }
+        executor.shutdown();
+    }
+
+    @Test(timeout = 10_000)
+    public void tasksAfterShutdownAreDroppedAndCounted() throws Exception
+    {
+        KeyedExecutor executor = new KeyedExecutor("test", 2);
+        CountDownLatch ran = new CountDownLatch(1);
+        executor.execute(1L, ran::countDown);
+        executor.shutdown();
+
+        executor.execute(1L, () -> fail("Ran after shutdown"));
+        executor.execute(2L, () -> fail("Ran after shutdown"));
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals(2, executor.getRejected());
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import me.kgustave.jdagen.autolistener.AutoListener.Overflow;
+import me.kgustave.jdagen.autolistener.AutoListener.WaitStrategy;
+import net.dv8tion.jda.core.events.Event;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Kaidan Gustave
+ */
+public class RingBufferExecutorTest
+{
+    @Test(timeout = 30_000)
+    public void multipleProducersAndConsumersHandleEveryEventOnce() throws Exception
+    {
+        assertEveryEventHandledOnce(WaitStrategy.PARK, 4, 4, 20_000, 64);
+    }
+
+    @Test(timeout = 30_000)
+    public void busySpinHandlesEveryEventOnce() throws Exception
+    {
+        // Spinning threads take whole time slices on a busy machine, so this stays small
+        assertEveryEventHandledOnce(WaitStrategy.BUSY_SPIN, 2, 2, 1_000, 16);
+    }
+
+    @Test(timeout = 30_000)
+    public void yieldHandlesEveryEventOnce() throws Exception
+    {
+        assertEveryEventHandledOnce(WaitStrategy.YIELD, 2, 2, 10_000, 16);
+    }
+
+    @Test(timeout = 30_000)
+    public void parkHandlesEveryEventOnce() throws Exception
+    {
+        assertEveryEventHandledOnce(WaitStrategy.PARK, 2, 2, 10_000, 16);
+    }
+
+    @Test(timeout = 30_000)
+    public void singleConsumerKeepsTheOrderOfEachProducer() throws Exception
+    {
+        int producers = 4;
+        int perProducer = 10_000;
+        long[] last = new long[producers];
+        AtomicInteger outOfOrder = new AtomicInteger();
+        CountDownLatch handled = new CountDownLatch(producers * perProducer);
+
+        // Only ever called from the one consumer thread
+        RingBufferExecutor executor = new RingBufferExecutor("test", 32, 1, WaitStrategy.PARK, Overflow.BLOCK,
+            (handler, event) -> {
+                if(event.getResponseNumber() <= last[handler])
+                    outOfOrder.incrementAndGet();
+                last[handler] = event.getResponseNumber();
+                handled.countDown();
+            });
+
+        try {
+            runProducers(producers, producer -> {
+                for(int i = 1; i <= perProducer; i++)
+                    executor.publish(producer, event(i));
+            });
+
+            assertTrue(handled.await(20, TimeUnit.SECONDS));
+            assertEquals(0, outOfOrder.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void sequencesWrapAroundTheSmallestBuffer() throws Exception
+    {
+        // A buffer of 2 slots laps 10,000 times
+        int events = 20_000;
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger outOfOrder = new AtomicInteger();
+        CountDownLatch handled = new CountDownLatch(events);
+
+        RingBufferExecutor executor = new RingBufferExecutor("test", 1, 1, WaitStrategy.YIELD, Overflow.BLOCK,
+            (handler, event, received) -> {
+                if(event.getResponseNumber() != next.getAndIncrement() || received != event.getResponseNumber() * 2)
+                    outOfOrder.incrementAndGet();
+                handled.countDown();
+            });
+
+        try {
+            for(int i = 0; i < events; i++)
+                executor.publish(0, event(i), i * 2L);
+
+            assertTrue(handled.await(20, TimeUnit.SECONDS));
+            assertEquals(0, outOfOrder.get());
+            assertEquals(0, executor.getDropped());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void dropOverflowDropsEventsWhileFull() throws Exception
+    {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch handled = new CountDownLatch(5);
+
+        RingBufferExecutor executor = new RingBufferExecutor("test", 4, 1, WaitStrategy.PARK, Overflow.DROP,
+            (handler, event) -> {
+                blocked.countDown();
+                await(release);
+                handled.countDown();
+            });
+
+        try {
+            // The consumer takes the first event and blocks on it, then 4 fill the buffer
+            executor.publish(0, event(0));
+            assertTrue(blocked.await(10, TimeUnit.SECONDS));
+            for(int i = 1; i <= 14; i++)
+                executor.publish(0, event(i));
+
+            assertEquals(4, executor.getQueueDepth());
+            assertEquals(10, executor.getDropped());
+
+            release.countDown();
+            assertTrue(handled.await(10, TimeUnit.SECONDS));
+            assertEquals(10, executor.getDropped());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void blockOverflowWaitsForAFreeSlot() throws Exception
+    {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch handled = new CountDownLatch(15);
+
+        RingBufferExecutor executor = new RingBufferExecutor("test", 4, 1, WaitStrategy.PARK, Overflow.BLOCK,
+            (handler, event) -> {
+                blocked.countDown();
+                await(release);
+                handled.countDown();
+            });
+
+        try {
+            executor.publish(0, event(0));
+            assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+            Thread publisher = new Thread(() -> {
+                for(int i = 1; i <= 14; i++)
+                    executor.publish(0, event(i));
+            });
+            publisher.start();
+
+            // Stuck on the fifth event, until the consumer frees a slot
+            publisher.join(200);
+            assertTrue(publisher.isAlive());
+            assertEquals(4, executor.getQueueDepth());
+
+            release.countDown();
+            publisher.join(10_000);
+            assertFalse(publisher.isAlive());
+            assertTrue(handled.await(10, TimeUnit.SECONDS));
+            assertEquals(0, executor.getDropped());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void shutdownDrainsPublishedEvents() throws Exception
+    {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch handled = new CountDownLatch(8);
+
+        RingBufferExecutor executor = new RingBufferExecutor("test", 8, 2, WaitStrategy.PARK, Overflow.BLOCK,
+            (handler, event) -> {
+                blocked.countDown();
+                await(release);
+                handled.countDown();
+            });
+
+        for(int i = 0; i < 8; i++)
+            executor.publish(0, event(i));
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+        executor.shutdown();
+        release.countDown();
+
+        assertTrue(handled.await(10, TimeUnit.SECONDS));
+        assertEquals(0, executor.getQueueDepth());
+    }
+
+    @Test(timeout = 30_000)
+    public void publishingAfterShutdownDrops() throws Exception
+    {
+        AtomicInteger handled = new AtomicInteger();
+        RingBufferExecutor executor = new RingBufferExecutor("test", 8, 1, WaitStrategy.PARK, Overflow.BLOCK,
+            (handler, event) -> handled.incrementAndGet());
+
+        executor.shutdown();
+        executor.publish(0, event(0));
+
+        assertEquals(1, executor.getDropped());
+        assertEquals(0, executor.getQueueDepth());
+        assertEquals(0, handled.get());
+    }
+
+    @Test(timeout = 30_000)
+    public void exceptionsDoNotStopConsumers() throws Exception
+    {
+        RingBufferExecutor executor = new RingBufferExecutor("test", 8, 1, WaitStrategy.PARK, Overflow.BLOCK,
+            (handler, event) -> {
+                throw new IllegalStateException("Expected by the test");
+            });
+
+        // Exceptions go to the uncaught exception handler of the consumer
+        CountDownLatch reported = new CountDownLatch(10);
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, t) -> reported.countDown());
+        try {
+            for(int i = 0; i < 10; i++)
+                executor.publish(0, event(i));
+
+            assertTrue(reported.await(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+    }
+
+    private static void assertEveryEventHandledOnce(WaitStrategy waitStrategy, int producers, int consumers,
+                                                    int perProducer, int bufferSize) throws Exception
+    {
+        int total = producers * perProducer;
+        AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        CountDownLatch handled = new CountDownLatch(total);
+
+        RingBufferExecutor executor = new RingBufferExecutor("test", bufferSize, consumers, waitStrategy, Overflow.BLOCK,
+            (handler, event) -> {
+                seen.incrementAndGet((int) event.getResponseNumber());
+                handled.countDown();
+            });
+
+        try {
+            runProducers(producers, producer -> {
+                for(int i = 0; i < perProducer; i++)
+                    executor.publish(producer, event(producer * perProducer + i));
+            });
+
+            assertTrue(waitStrategy + " lost events", handled.await(20, TimeUnit.SECONDS));
+            for(int i = 0; i < total; i++)
+                assertEquals(waitStrategy + " handled event " + i, 1, seen.get(i));
+            assertEquals(0, executor.getDropped());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void runProducers(int producers, Producer producer) throws InterruptedException
+    {
+        List<Thread> threads = new ArrayList<>();
+        for(int i = 0; i < producers; i++)
+        {
+            int id = i;
+            threads.add(new Thread(() -> producer.produce(id)));
+        }
+
+        threads.forEach(Thread::start);
+        for(Thread thread : threads)
+            thread.join();
+    }
+
+    private static void await(CountDownLatch latch)
+    {
+        try {
+            latch.await();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Event event(long id)
+    {
+        return new Event(null, id) {};
+    }
+
+    @FunctionalInterface
+    private interface Producer
+    {
+        void produce(int id);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Kaidan Gustave
+ */
+public class TokenBucketsTest
+{
+    @Test
+    public void burstsUpToPermitsThenRefills() throws Exception
+    {
+        for(long key : new long[] {42L, 0L})
+        {
+            // One permit every 200ms
+            TokenBuckets buckets = new TokenBuckets(3, 600L, 16);
+
+            long start = System.nanoTime();
+            assertEquals(3, drain(buckets, key));
+
+            Thread.sleep(250L);
+            assertRefilled(buckets, key, start, 200L, 3);
+
+            Thread.sleep(650L);
+            assertEquals(3, drain(buckets, key));
+        }
+    }
+
+    @Test
+    public void keysHaveTheirOwnBuckets()
+    {
+        TokenBuckets buckets = new TokenBuckets(2, 60_000L, 16);
+
+        assertEquals(2, drain(buckets, 1L));
+        assertEquals(2, drain(buckets, 2L));
+        assertEquals(2, drain(buckets, 0L));
+        assertEquals(2, drain(buckets, -1L));
+        assertFalse(buckets.tryAcquire(1L));
+    }
+
+    @Test
+    public void saturationReplacesTheFullestBucket() throws Exception
+    {
+        // 8 slots, so every key is probed for in the whole table
+        TokenBuckets buckets = new TokenBuckets(1, 60_000L, 8);
+
+        for(long key = 1; key <= 8; key++)
+        {
+            assertTrue(buckets.tryAcquire(key));
+            Thread.sleep(2L);
+        }
+
+        // A new key always gets a permit, taking the bucket of the key that took its permit first
+        assertTrue(buckets.tryAcquire(9L));
+        assertFalse(buckets.tryAcquire(9L));
+        for(long key = 2; key <= 8; key++)
+            assertFalse(buckets.tryAcquire(key));
+
+        // The replaced key lost its state, so it starts over with a full bucket
+        assertTrue(buckets.tryAcquire(1L));
+    }
+
+    @Test
+    public void refilledBucketsAreReused() throws Exception
+    {
+        TokenBuckets buckets = new TokenBuckets(1, 300L, 8);
+
+        for(long key = 1; key <= 8; key++)
+            assertTrue(buckets.tryAcquire(key));
+        Thread.sleep(350L);
+
+        // Every bucket refilled, so new keys don't replace ones still waiting
+        for(long key = 9; key <= 16; key++)
+            assertTrue(buckets.tryAcquire(key));
+        for(long key = 9; key <= 16; key++)
+            assertFalse(buckets.tryAcquire(key));
+    }
+
+    @Test(timeout = 30_000)
+    public void concurrentAcquiresNeverExceedPermits() throws Exception
+    {
+        for(long key : new long[] {7L, 0L})
+        {
+            // A permit every 6 seconds, so none are refilled while running
+            TokenBuckets buckets = new TokenBuckets(100, 600_000L, 16);
+            AtomicInteger acquired = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] threads = new Thread[8];
+            for(int i = 0; i < threads.length; i++)
+            {
+                threads[i] = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch(InterruptedException e) {
+                        return;
+                    }
+
+                    for(int j = 0; j < 1000; j++)
+                    {
+                        if(buckets.tryAcquire(key))
+                            acquired.incrementAndGet();
+                    }
+                });
+                threads[i].start();
+            }
+
+            start.countDown();
+            for(Thread thread : threads)
+                thread.join();
+
+            assertEquals(100, acquired.get());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void permitsMustBePositive()
+    {
+        new TokenBuckets(0, 1000L, 16);
+    }
+
+    private static int drain(TokenBuckets buckets, long key)
+    {
+        int taken = 0;
+        while(buckets.tryAcquire(key))
+            taken++;
+        return taken;
+    }
+
+    // At least one permit was refilled, and no more than the elapsed time allows
+    private static void assertRefilled(TokenBuckets buckets, long key, long start, long interval, int permits)
+    {
+        int taken = drain(buckets, key);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("Refilled "+taken+" permits after "+elapsed+"ms",
+            taken >= 1 && taken <= Math.min(permits, elapsed / interval));
+    }
+}
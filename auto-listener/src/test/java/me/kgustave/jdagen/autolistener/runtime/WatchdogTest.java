@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Kaidan Gustave
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.kgustave.jdagen.autolistener.runtime;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Kaidan Gustave
+ */
+public class WatchdogTest
+{
+    private final BlockingQueue<Watchdog.Report> reports = new LinkedBlockingQueue<>();
+    private Watchdog watchdog;
+
+    @Before
+    public void setUp()
+    {
+        Watchdog.setReporter(reports::add);
+        watchdog = new Watchdog("Test", new String[] {"fast", "slow"}, new long[] {60_000L, 40L});
+    }
+
+    @After
+    public void tearDown()
+    {
+        watchdog.shutdown();
+    }
+
+    @Test(timeout = 10_000)
+    public void invocationsOverBudgetAreReported() throws Exception
+    {
+        int slot = watchdog.begin(1, "event");
+        assertTrue(slot >= 0);
+        try {
+            Watchdog.Report report = reports.poll(5, TimeUnit.SECONDS);
+            assertNotNull(report);
+            assertEquals("slow", report.getHandler());
+            assertEquals(String.class, report.getEventType());
+            assertEquals(Thread.currentThread().getName(), report.getThread());
+            assertFalse(report.getSamples().isEmpty());
+        } finally {
+            watchdog.end(slot);
+        }
+
+        // Each invocation is only reported once
+        assertNull(reports.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(timeout = 10_000)
+    public void nestedInvocationsAreTimedAsPartOfTheOuterOne() throws Exception
+    {
+        int outer = watchdog.begin(0, "event");
+        int inner = watchdog.begin(1, "event");
+        assertTrue(outer >= 0);
+        assertEquals(-1, inner);
+
+        Thread.sleep(200);
+        watchdog.end(inner);
+        watchdog.end(outer);
+        assertNull(reports.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(timeout = 30_000)
+    public void shortLivedThreadsLeaveNoSlotsBehind() throws Exception
+    {
+        // Like virtual threads, that each handle a single event
+        for(int i = 0; i < 2000; i++)
+        {
+            Thread thread = new Thread(() -> watchdog.end(watchdog.begin(0, "event")));
+            thread.start();
+            thread.join();
+        }
+
+        assertEquals(0, watchdog.getUnwatched());
+        int slot = watchdog.begin(0, "event");
+        assertTrue(slot >= 0);
+        watchdog.end(slot);
+    }
+}
@@ -113,6 +113,15 @@ public final class AutoLoginProcessor extends ProcessorFrame
 
         JDALogin login = baseClass.getAnnotation(JDALogin.class);
 
+        // The generated main references the exporter, which would otherwise fail to compile obscurely
+        if(login.metricsPort() > 0 && elements.getTypeElement(LoginClassFrame.EXPORTER_CLASS) == null)
+        {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                "@JDALogin has a metricsPort, but "+LoginClassFrame.EXPORTER_CLASS+" could not be found! " +
+                "Add the auto-exporter module to the compile classpath.", baseClass);
+            return;
+        }
+
         List<Element> members = findRelevantMembers(baseClass);
 
         LoginClassFrame frame = new LoginClassFrame(login.type(), baseClass, login);
@@ -35,6 +35,21 @@ public @interface JDALogin
 
     boolean instanceAccessor() default false;
 
+    /**
+     * The port to serve metrics on, in the Prometheus text format.
+     * <br>When set, the generated {@code main} starts a
+     * {@code me.kgustave.jdagen.autoexporter.PrometheusExporter} for the built
+     * {@link net.dv8tion.jda.core.JDA JDA} instance and every listener of the login class.
+     * Only listeners generated with {@code @AutoListener(metrics = true)}, which implement
+     * {@code me.kgustave.jdagen.autolistener.runtime.Instrumented}, are exported, others are skipped.
+     * <br>The generated class references the exporter, so this requires the auto-exporter module
+     * on the compile classpath as well as at runtime, and compiling fails with an error if it's missing.
+     * <br>If left unset, this will default to {@code 0}, and no metrics are served.
+     *
+     * @return The port to serve metrics on, or {@code 0} to serve none.
+     */
+    int metricsPort() default 0;
+
     enum Mode
     {
         /**
@@ -25,6 +25,7 @@ import javax.annotation.Generated;
 import javax.lang.model.element.*;
 import javax.lang.model.type.TypeKind;
 import javax.security.auth.login.LoginException;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -37,6 +38,11 @@ public class LoginClassFrame
     private static final TypeName JDA_TYPE = TypeName.get(JDA.class);
     private static final TypeName JDA_BUILDER_TYPE = TypeName.get(JDABuilder.class);
 
+    // Referenced by name, so auto-login itself doesn't depend on auto-exporter.
+    // The generated class does though, so it must be on the compile classpath.
+    static final String EXPORTER_CLASS = "me.kgustave.jdagen.autoexporter.PrometheusExporter";
+    private static final ClassName EXPORTER_TYPE = ClassName.bestGuess(EXPORTER_CLASS);
+
     private static final String BASE_INSTANCE = "base";
     private static final String BUILDER_INSTANCE = "builder";
 
@@ -194,6 +200,15 @@ public class LoginClassFrame
             mainBlock.addStatement("$T jda = " + BUILDER_INSTANCE + ".buildAsync()", JDA_TYPE);
         }
 
+        if(jdaLogin.metricsPort() > 0)
+        {
+            mainBuilder.addException(IOException.class);
+            mainBlock.addStatement("$T exporter = new $T($L)", EXPORTER_TYPE, EXPORTER_TYPE, jdaLogin.metricsPort());
+            mainBlock.addStatement("exporter.addJDA(jda)");
+            mainBlock.addStatement("exporter.addListeners(login." + LISTENERS_FIELD + ")");
+            mainBlock.addStatement("exporter.start()");
+        }
+
         if(mainMethod != null)
         {
             mainBlock.addStatement(String.format("login." + BASE_INSTANCE + ".%s(jda)", mainMethod.getSimpleName().toString()));
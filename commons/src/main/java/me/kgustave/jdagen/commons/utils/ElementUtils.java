@@ -18,6 +18,7 @@ package me.kgustave.jdagen.commons.utils;
 import javax.annotation.Nullable;
 import javax.lang.model.element.*;
 import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import java.util.ArrayList;
 import java.util.List;
@@ -77,6 +78,28 @@ public final class ElementUtils
         return null;
     }
 
+    @Nullable
+    public static ExecutableElement findAccessor(TypeElement type, Elements elementUtils, String name)
+    {
+        // Include members inherited from supertypes
+        for(ExecutableElement member : ElementFilter.methodsIn(elementUtils.getAllMembers(type)))
+        {
+            if(!member.getSimpleName().toString().equals(name))
+                continue;
+
+            if(!member.getParameters().isEmpty())
+                continue;
+
+            if(member.getModifiers().contains(Modifier.STATIC))
+                continue;
+
+            if(member.getModifiers().contains(Modifier.PUBLIC))
+                return member;
+        }
+
+        return null;
+    }
+
     public static boolean hasModifier(Element element, Modifier modifier)
     {
         for(Modifier mod : element.getModifiers())
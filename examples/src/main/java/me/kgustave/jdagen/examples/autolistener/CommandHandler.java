@@ -16,6 +16,7 @@
 package me.kgustave.jdagen.examples.autolistener;
 
 import me.kgustave.jdagen.autolistener.AutoListener;
+import me.kgustave.jdagen.autolistener.Command;
 import net.dv8tion.jda.core.events.message.MessageReceivedEvent;
 
 import java.util.concurrent.TimeUnit;
@@ -23,34 +24,27 @@ import java.util.concurrent.TimeUnit;
 /**
  * @author Kaidan Gustave
  */
-@AutoListener
+@AutoListener(prefix = "!")
 public class CommandHandler
 {
-    // This method fires when an message is received
-    public void onMessageSend(MessageReceivedEvent event)
-    {
-        if(event.getMessage().getContentRaw().startsWith("!ping"))
-            handlePing(event);
-        if(event.getMessage().getContentRaw().startsWith("!remind"))
-            handleRemind(event);
-    }
-
-    void hello(String str)
-    {
-
-    }
-
-    // The methods below are ignored because they are private.
-
-    private void handlePing(MessageReceivedEvent event)
+    // This method fires when an message starting with "!ping" is received
+    @Command("ping")
+    public void handlePing(MessageReceivedEvent event)
     {
         event.getChannel().sendMessage("Pong!").queue();
     }
 
-    private void handleRemind(MessageReceivedEvent event)
+    // This method fires when an message starting with "!remind" or "!r" is received
+    @Command({"remind", "r"})
+    public void handleRemind(MessageReceivedEvent event)
     {
         event.getChannel().sendMessage("I'll remind you in a bit!").queue(message ->
             event.getChannel().sendMessage(event.getAuthor().getAsMention() + " Here's your reminder!")
                  .queueAfter(20, TimeUnit.SECONDS));
     }
+
+    void hello(String str)
+    {
+
+    }
 }